@@ -1,7 +1,10 @@
 package tree;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>This class is an implementation of a queue.</p>
@@ -10,6 +13,10 @@ import java.util.stream.Collectors;
  * via comparator or in a natural order.</p>
  * <p>This class offers an almost O(log(n)) time performance
  * on add/peek/poll operations.</p>
+ * <p>By default each node of the heap has two children. A greater arity (for example 4 or 8)
+ * can be chosen at construction: the children of a node are then stored next to each other
+ * and occupy one or two cache lines, while the tree becomes shallower.
+ * This reduces the number of cache misses per poll operation on large heaps.</p>
  * <p><strong>Note that this implementation is not synchronized.</strong></p>
  * @param <T> type of element to be stored in this queue.
  */
@@ -29,6 +36,16 @@ public class BinaryHeap<T> implements Heap<T> {
      * it gets the default capacity.
      */
     private static final int DEFAULT_INITIAL_CAPACITY = 12;
+    /**
+     * The default arity of this binary heap.
+     * When a binary heap is created without the specified arity
+     * each node gets two children.
+     */
+    private static final int DEFAULT_ARITY = 2;
+    /**
+     * The maximum number of children of each node in this binary heap.
+     */
+    private final int arity;
     /**
      * Comparator used to order the elements in this binary heap
      * or null if the elements are ordered in a natural order.
@@ -68,10 +85,23 @@ public class BinaryHeap<T> implements Heap<T> {
      * @param comparator comparator that will be used to order the elements in this binary heap.
      */
     public BinaryHeap(int initialCapacity, Comparator<? super T> comparator) {
-        if (initialCapacity < 1)
+        this(initialCapacity, DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * Creates a binary heap with the specified capacity, the specified arity
+     * and the specified comparator.
+     * @param initialCapacity capacity of the binary heap.
+     * @param arity maximum number of children of each node, for example 4 or 8.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     * @throws IllegalArgumentException if the capacity is less than 1 or the arity is less than 2.
+     */
+    public BinaryHeap(int initialCapacity, int arity, Comparator<? super T> comparator) {
+        if (initialCapacity < 1 || arity < 2)
             throw new IllegalArgumentException();
 
         list = new Object[initialCapacity];
+        this.arity = arity;
         this.comparator = comparator;
     }
 
@@ -81,12 +111,99 @@ public class BinaryHeap<T> implements Heap<T> {
      * @param collection collection of the elements from which the binary heap will be created.
      */
     public BinaryHeap(Collection<? extends T> collection) {
-        this.size = collection.size();
-        list = Arrays.copyOf(collection.toArray(), size);
-        comparator = null;
+        this(collection, DEFAULT_ARITY, null);
+    }
 
-        for (int i = size / 2; i >= 0; i--)
-            siftDown(i);
+    /**
+     * Creates a binary heap with the specified comparator from the elements stored in the specified collection.
+     * The binary heap is built in O(n) time.
+     * @param collection collection of the elements from which the binary heap will be created.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     * @throws NullPointerException if the collection contains null.
+     */
+    public BinaryHeap(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        this(collection, DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * Creates a binary heap with the specified arity from the elements stored in the specified collection.
+     * This binary heap will not get any comparator.
+     * @param collection collection of the elements from which the binary heap will be created.
+     * @param arity maximum number of children of each node, for example 4 or 8.
+     * @throws IllegalArgumentException if the arity is less than 2.
+     */
+    public BinaryHeap(Collection<? extends T> collection, int arity) {
+        this(collection, arity, null);
+    }
+
+    /**
+     * Creates a binary heap with the specified arity and the specified comparator
+     * from the elements stored in the specified collection.
+     * The binary heap is built in O(n) time.
+     * @param collection collection of the elements from which the binary heap will be created.
+     * @param arity maximum number of children of each node, for example 4 or 8.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     * @throws IllegalArgumentException if the arity is less than 2.
+     * @throws NullPointerException if the collection contains null.
+     */
+    public BinaryHeap(Collection<? extends T> collection, int arity, Comparator<? super T> comparator) {
+        if (arity < 2)
+            throw new IllegalArgumentException();
+
+        Object[] values = collection.toArray();
+        checkNotNull(values, 0, values.length);
+
+        this.size = values.length;
+        list = Arrays.copyOf(values, size, Object[].class);
+        this.arity = arity;
+        this.comparator = comparator;
+
+        heapify();
+    }
+
+    /**
+     * Creates a binary heap with the specified comparator from the elements stored
+     * in the specified range of the specified array.
+     * The binary heap is built in O(n) time.
+     * @param array array that contains the elements from which the binary heap will be created.
+     * @param from index of the first element of the range, inclusive.
+     * @param to index of the last element of the range, exclusive.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of the array.
+     * @throws NullPointerException if the range contains null.
+     */
+    public BinaryHeap(T[] array, int from, int to, Comparator<? super T> comparator) {
+        this(array, from, to, DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * Creates a binary heap with the specified arity and the specified comparator
+     * from the elements stored in the specified range of the specified array.
+     * The binary heap is built in O(n) time.
+     * @param array array that contains the elements from which the binary heap will be created.
+     * @param from index of the first element of the range, inclusive.
+     * @param to index of the last element of the range, exclusive.
+     * @param arity maximum number of children of each node, for example 4 or 8.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     * @throws IllegalArgumentException if the arity is less than 2.
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of the array.
+     * @throws NullPointerException if the range contains null.
+     */
+    public BinaryHeap(T[] array, int from, int to, int arity, Comparator<? super T> comparator) {
+        if (arity < 2)
+            throw new IllegalArgumentException();
+
+        if (from < 0 || to > array.length || from > to)
+            throw new IndexOutOfBoundsException("From: " + from + " to: " + to + " length: " + array.length);
+
+        checkNotNull(array, from, to);
+
+        this.size = to - from;
+        list = Arrays.copyOfRange(array, from, to, Object[].class);
+        this.arity = arity;
+        this.comparator = comparator;
+
+        heapify();
     }
 
     /**
@@ -107,6 +224,32 @@ public class BinaryHeap<T> implements Heap<T> {
         siftUp(size - 1);
     }
 
+    /**
+     * Appends all the elements from the specified collection to the end of this queue.
+     * Depending on the number of new elements compared to the size of this queue
+     * either sifts up each of them or rebuilds the whole binary heap in O(n) time.
+     * @param collection collection of the elements to be appended.
+     * @throws NullPointerException if the collection contains null,
+     * in this case this queue is left unchanged.
+     */
+    public void addAll(Collection<? extends T> collection) {
+        Object[] values = collection.toArray();
+
+        addAll(values, values.length);
+    }
+
+    /**
+     * Appends all the elements from the specified array to the end of this queue.
+     * Depending on the number of new elements compared to the size of this queue
+     * either sifts up each of them or rebuilds the whole binary heap in O(n) time.
+     * @param array array of the elements to be appended.
+     * @throws NullPointerException if the array contains null,
+     * in this case this queue is left unchanged.
+     */
+    public void addAll(T[] array) {
+        addAll(array, array.length);
+    }
+
     /**
      * Returns the value of the element at the beginning of the queue without removing it.
      * @return value of the element at the beginning of the queue
@@ -133,11 +276,100 @@ public class BinaryHeap<T> implements Heap<T> {
         T result = (T) list[0];
 
         list[0] = list[--size];
+        list[size] = null;
         siftDown(0);
 
         return result;
     }
 
+    /**
+     * Replaces the element at the beginning of the queue with the specified element.
+     * The new element is sifted down once, which is cheaper than a poll followed by an add.
+     * If this queue is empty the element is simply added.
+     * @param value element to be added.
+     * @return value of the replaced element
+     * or null if this queue was empty.
+     * @throws NullPointerException if the element is null.
+     */
+    public T replace(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        if (size == 0) {
+            add(value);
+            return null;
+        }
+
+        T result = (T) list[0];
+
+        list[0] = value;
+        siftDown(0);
+
+        return result;
+    }
+
+    /**
+     * Removes at most the specified number of elements from the beginning of the queue
+     * and passes them to the specified consumer in the order in which they would be polled.
+     * If the batch takes at least a half of the queue the whole list is sorted once,
+     * which keeps it a valid heap, and the batch is cut off its beginning.
+     * Otherwise the elements are removed one by one without going through <strong>poll</strong>.
+     * @param sink consumer that accepts the removed elements.
+     * @param maxElements maximum number of elements to be removed.
+     * @return number of elements removed.
+     * @throws IllegalArgumentException if the maximum number of elements is negative.
+     */
+    @Override
+    public int drainTo(Consumer<? super T> sink, int maxElements) {
+        if (maxElements < 0)
+            throw new IllegalArgumentException();
+
+        int count = Math.min(maxElements, size);
+
+        if (count == 0)
+            return 0;
+
+        if (2 * count < size) {
+            for (int i = 0; i < count; i++) {
+                T result = (T) list[0];
+
+                list[0] = list[--size];
+                list[size] = null;
+                siftDown(0);
+
+                sink.accept(result);
+            }
+
+            return count;
+        }
+
+        if (comparator == null)
+            Arrays.sort(list, 0, size);
+        else
+            Arrays.sort((T[]) list, 0, size, comparator);
+
+        int removed = 0;
+
+        try {
+            while (removed < count)
+                sink.accept((T) list[removed++]);
+        } finally {
+            System.arraycopy(list, removed, list, 0, size - removed);
+            Arrays.fill(list, size - removed, size, null);
+            size -= removed;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the maximum number of children of each node in this binary heap.
+     * @return arity of this binary heap.
+     */
+    public int getArity() {
+        return arity;
+    }
+
     /**
      * Returns the size of this queue.
      * @return size of this queue.
@@ -159,10 +391,11 @@ public class BinaryHeap<T> implements Heap<T> {
     /**
      * Removes all the elements from this queue.
      * This queue will be empty after this call returns.
+     * The array of the elements is kept to be reused.
      */
     @Override
     public void clear() {
-        list = new Object[DEFAULT_INITIAL_CAPACITY];
+        Arrays.fill(list, 0, size, null);
         size = 0;
     }
 
@@ -240,6 +473,32 @@ public class BinaryHeap<T> implements Heap<T> {
         };
     }
 
+    /**
+     * Returns an iterator over the elements from this queue in the order in which they would be polled.
+     * The iterator walks the heap keeping the positions of the candidates for the next element
+     * in a small auxiliary heap, so this queue is neither copied nor modified,
+     * and getting the first k elements takes O(k*log(k)) time.
+     * This queue must not be modified while the iterator is in use.
+     * @return an iterator over the elements from this queue in the order in which they would be polled.
+     */
+    public Iterator<T> sortedIterator() {
+        return new SortedIterator();
+    }
+
+    /**
+     * Returns a sequential stream of the elements from this queue in the order in which they would be polled.
+     * The stream is backed by <strong>sortedIterator</strong>, so taking the first k elements
+     * takes O(k*log(k)) time and this queue is not modified.
+     * This queue must not be modified while the stream is in use.
+     * @return a stream of the elements from this queue in the order in which they would be polled.
+     */
+    public Stream<T> sortedStream() {
+        Spliterator<T> spliterator = Spliterators.spliterator(sortedIterator(), size,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
     /**
      * Increases the capacity of this binary heap.
      * It will be called if during the add operation the program detects
@@ -252,6 +511,61 @@ public class BinaryHeap<T> implements Heap<T> {
         list = Arrays.copyOf(list, newCapacity);
     }
 
+    /**
+     * Appends the specified number of elements from the beginning of the specified array.
+     * Sifting up k new elements costs O(k*log(n + k)) in the worst case while rebuilding
+     * the binary heap costs O(n + k), so the cheaper of the two is chosen.
+     * @param values array of the elements to be appended.
+     * @param count number of the elements to be appended.
+     * @throws NullPointerException if any of the elements is null.
+     */
+    private void addAll(Object[] values, int count) {
+        checkNotNull(values, 0, count);
+
+        if (count == 0)
+            return;
+
+        int oldSize = size;
+        int newSize = oldSize + count;
+
+        if (newSize > list.length)
+            list = Arrays.copyOf(list, Math.max(newSize, list.length + (list.length >> 1) + 1));
+
+        System.arraycopy(values, 0, list, oldSize, count);
+        size = newSize;
+
+        int depth = 32 - Integer.numberOfLeadingZeros(newSize);
+
+        if ((long) count * depth >= newSize) {
+            heapify();
+        } else {
+            for (int i = oldSize; i < newSize; i++)
+                siftUp(i);
+        }
+    }
+
+    /**
+     * Checks that the specified range of the array contains no null elements.
+     * @param values array to be checked.
+     * @param from index of the first element of the range, inclusive.
+     * @param to index of the last element of the range, exclusive.
+     * @throws NullPointerException if the range contains null.
+     */
+    private static void checkNotNull(Object[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (values[i] == null)
+                throw new NullPointerException();
+    }
+
+    /**
+     * Restores the heap order of the whole list in O(n) time
+     * by sifting down each node starting from the last one that has children.
+     */
+    private void heapify() {
+        for (int i = (size - 2) / arity; i >= 0; i--)
+            siftDown(i);
+    }
+
     /**
      * Starts the process of sifting down the element at the specified position.
      * Will call <strong>siftDownAsComparable</strong> or <strong>siftDownWithComparator</strong>
@@ -272,17 +586,17 @@ public class BinaryHeap<T> implements Heap<T> {
      * @param i index of the element that will be sifted down.
      */
     private void siftDownAsComparable(int i) {
-        while (2 * i + 1 < size) {
-            int leftChildIndex = 2 * i + 1;
-            int rightChildIndex = 2 * i + 2;
-            int swapIndex = leftChildIndex;
+        while (arity * i + 1 < size) {
+            int firstChildIndex = arity * i + 1;
+            int endChildIndex = Math.min(firstChildIndex + arity, size);
+            int swapIndex = firstChildIndex;
 
-            if (rightChildIndex < size) {
-                Comparable<? super T> rightChild = (Comparable<? super T>) list[rightChildIndex];
-                T leftChild = (T) list[leftChildIndex];
+            for (int childIndex = firstChildIndex + 1; childIndex < endChildIndex; childIndex++) {
+                Comparable<? super T> child = (Comparable<? super T>) list[childIndex];
+                T swapChild = (T) list[swapIndex];
 
-                if (rightChild.compareTo(leftChild) < 0)
-                    swapIndex = rightChildIndex;
+                if (child.compareTo(swapChild) < 0)
+                    swapIndex = childIndex;
             }
 
             Comparable<? super T> element = (Comparable<? super T>) list[i];
@@ -303,18 +617,17 @@ public class BinaryHeap<T> implements Heap<T> {
      * @param i index of the element that will be sifted down.
      */
     private void siftDownWithComparator(int i) {
-        while (2 * i + 1 < size) {
-            int leftChildIndex = 2 * i + 1;
-            int rightChildIndex = 2 * i + 2;
-            int swapIndex = leftChildIndex;
+        while (arity * i + 1 < size) {
+            int firstChildIndex = arity * i + 1;
+            int endChildIndex = Math.min(firstChildIndex + arity, size);
+            int swapIndex = firstChildIndex;
 
-            if (rightChildIndex < size) {
+            for (int childIndex = firstChildIndex + 1; childIndex < endChildIndex; childIndex++) {
+                T child = (T) list[childIndex];
+                T swapChild = (T) list[swapIndex];
 
-                T rightChild = (T) list[rightChildIndex];
-                T leftChild = (T) list[leftChildIndex];
-
-                if (comparator.compare(rightChild, leftChild) < 0)
-                    swapIndex = rightChildIndex;
+                if (comparator.compare(child, swapChild) < 0)
+                    swapIndex = childIndex;
             }
 
             T element = (T) list[i];
@@ -349,7 +662,7 @@ public class BinaryHeap<T> implements Heap<T> {
      */
     private void siftUpAsComparable(int i) {
         while (i > 0) {
-            int parentIndex = (i - 1) >> 1;
+            int parentIndex = (i - 1) / arity;
             Comparable<? super T> element = (Comparable<? super T>) list[i];
             T parent = (T) list[parentIndex];
 
@@ -369,7 +682,7 @@ public class BinaryHeap<T> implements Heap<T> {
      */
     private void siftUpWithComparator(int i) {
         while (i > 0) {
-            int parentIndex = (i - 1) >> 1;
+            int parentIndex = (i - 1) / arity;
             T element = (T) list[i];
             T parent = (T) list[parentIndex];
 
@@ -391,4 +704,119 @@ public class BinaryHeap<T> implements Heap<T> {
         list[i] = list[j];
         list[j] = c;
     }
+
+    /**
+     * Compares the elements at the specified positions using the comparator or their natural order.
+     * @param i index of the first element.
+     * @param j index of the second element.
+     * @return true if the first element is less than the second one.
+     */
+    private boolean less(int i, int j) {
+        if (comparator == null)
+            return ((Comparable<? super T>) list[i]).compareTo((T) list[j]) < 0;
+        else
+            return comparator.compare((T) list[i], (T) list[j]) < 0;
+    }
+
+    /**
+     * Iterator over the elements of this binary heap in the order in which they would be polled.
+     * Keeps a binary heap of positions in the list: initially it contains only the root,
+     * and each time a position is taken the positions of its children are added.
+     */
+    private final class SortedIterator implements Iterator<T> {
+        /**
+         * Positions of the candidates for the next element, ordered as a binary heap.
+         */
+        private int[] candidates = new int[DEFAULT_INITIAL_CAPACITY];
+        /**
+         * Number of the candidates.
+         */
+        private int count = 0;
+
+        /**
+         * Creates an iterator that starts with the root of this binary heap.
+         */
+        SortedIterator() {
+            if (size > 0)
+                candidates[count++] = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return count > 0;
+        }
+
+        @Override
+        public T next() {
+            if (count == 0)
+                throw new NoSuchElementException();
+
+            int index = candidates[0];
+
+            candidates[0] = candidates[--count];
+            siftDown(0);
+
+            int firstChildIndex = arity * index + 1;
+            int endChildIndex = (int) Math.min((long) firstChildIndex + arity, size);
+
+            for (int childIndex = firstChildIndex; childIndex < endChildIndex; childIndex++)
+                push(childIndex);
+
+            return (T) list[index];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Adds the specified position to the candidates.
+         * @param index position to be added.
+         */
+        private void push(int index) {
+            if (count == candidates.length)
+                candidates = Arrays.copyOf(candidates, count + (count >> 1) + 1);
+
+            int i = count++;
+
+            while (i > 0) {
+                int parentIndex = (i - 1) >> 1;
+
+                if (!less(index, candidates[parentIndex]))
+                    break;
+
+                candidates[i] = candidates[parentIndex];
+                i = parentIndex;
+            }
+
+            candidates[i] = index;
+        }
+
+        /**
+         * Sifts down the candidate at the specified position.
+         * @param i index of the candidate that will be sifted down.
+         */
+        private void siftDown(int i) {
+            if (count == 0)
+                return;
+
+            int index = candidates[i];
+
+            while (2 * i + 1 < count) {
+                int swapIndex = 2 * i + 1;
+
+                if (swapIndex + 1 < count && less(candidates[swapIndex + 1], candidates[swapIndex]))
+                    swapIndex++;
+
+                if (!less(candidates[swapIndex], index))
+                    break;
+
+                candidates[i] = candidates[swapIndex];
+                i = swapIndex;
+            }
+
+            candidates[i] = index;
+        }
+    }
 }
@@ -0,0 +1,234 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * <p>This class is an implementation of a queue with a fixed capacity
+ * that keeps only the greatest elements added to it (the top K elements).</p>
+ * <p>The implementation is based on a {@link BinaryHeap} whose root is the least of the kept elements.
+ * When the queue is full a new element is either rejected, if it is not greater than the root,
+ * or replaces the root and gets sifted down once. Thus the queue never occupies more
+ * than O(K) memory and rejecting an element allocates nothing.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(K)) time performance
+ * on add/peek/poll/offerAndEvict operations.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class BoundedBinaryHeap<T> implements Heap<T> {
+    /**
+     * The binary heap that stores the kept elements.
+     */
+    private final BinaryHeap<T> heap;
+    /**
+     * The maximum number of the elements kept in this queue.
+     */
+    private final int capacity;
+
+    /**
+     * Comparator used to order the elements in this queue
+     * or null if the elements are ordered in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a queue with the specified capacity
+     * and without any comparator.
+     * @param capacity maximum number of the elements kept in the queue.
+     */
+    public BoundedBinaryHeap(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a queue with the specified capacity
+     * and the specified comparator.
+     * @param capacity maximum number of the elements kept in the queue.
+     * @param comparator comparator that will be used to order the elements in this queue.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public BoundedBinaryHeap(int capacity, Comparator<? super T> comparator) {
+        if (capacity < 1)
+            throw new IllegalArgumentException();
+
+        heap = new BinaryHeap<>(capacity, comparator);
+        this.capacity = capacity;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Adds the specified element to this queue if it is among the greatest elements.
+     * If this queue is full either the least element is evicted
+     * or the specified element is rejected.
+     * @param value element to be added.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        offerAndEvict(value);
+    }
+
+    /**
+     * Adds the specified element to this queue if it is among the greatest elements
+     * and returns the element that does not fit into this queue.
+     * @param value element to be added.
+     * @return null if this queue was not full, the least element of this queue if it was replaced
+     * by the specified element, or the specified element itself if it was rejected.
+     * @throws NullPointerException if the element is null.
+     */
+    public T offerAndEvict(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        if (heap.getSize() < capacity) {
+            heap.add(value);
+            return null;
+        }
+
+        if (compare(value, heap.peek()) <= 0)
+            return value;
+
+        return heap.replace(value);
+    }
+
+    /**
+     * Returns the least of the kept elements without removing it.
+     * When this queue is full it is the threshold that a new element has to exceed.
+     * @return the least of the kept elements
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        return heap.peek();
+    }
+
+    /**
+     * Returns the least of the kept elements removing it.
+     * @return the least of the kept elements
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        return heap.poll();
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue
+     * in the order in which they would be polled.
+     * This queue is not modified.
+     * @return sorted array containing all the elements from this queue.
+     */
+    public Object[] toSortedArray() {
+        Object[] result = heap.toArray();
+
+        if (comparator == null)
+            Arrays.sort(result);
+        else
+            Arrays.sort(result, (Comparator<Object>) comparator);
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of the elements kept in this queue.
+     * @return capacity of this queue.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns true if this queue has reached its capacity.
+     * @return true if this queue has reached its capacity, false otherwise.
+     */
+    public boolean isFull() {
+        return heap.getSize() == capacity;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return heap.getSize();
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * This queue will be empty after this call returns.
+     * The preallocated array of the elements is kept.
+     */
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        return heap.toArray();
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        return heap.toArray(a);
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return heap.toString();
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return heap.iterator();
+    }
+
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+}
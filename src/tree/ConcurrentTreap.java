@@ -0,0 +1,510 @@
+package tree;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>This class is an implementation of a concurrent set.</p>
+ * <p>The implementation is based on a persistent treap whose nodes are never modified.
+ * The add/remove operations copy only the nodes on the path to the changed position
+ * (O(log(n)) of them) and share all the other nodes with the previous version.
+ * The current version is published through an atomic reference to its root:
+ * a writer builds a new version from the root it has read and installs it with a CAS,
+ * retrying from the fresh root if another writer has won the race.
+ * The priority of a new node is chosen once before the retries.
+ * A batch of elements is committed by one CAS as well. Since a large batch takes long to rebuild
+ * it may keep losing the race to single-element writers, so after a few failed attempts
+ * it takes the commit lock: the other writers wait for the lock before their next attempt,
+ * so the batch is committed after at most one more attempt of each of them.</p>
+ * <p>Readers never write anything and never wait: contains/get read the root once
+ * and descend it, and the iterator, toArray and toString work on the version
+ * that was current when they read the root, so they always see a consistent snapshot.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/remove/contains/get operations if there is no contention between the writers
+ * and O(1) time performance on the getSize operation.</p>
+ * <p><strong>This implementation is thread-safe.</strong>
+ * The lookups are wait-free and the updates are lock-free
+ * as long as no batch has fallen back to the commit lock.</p>
+ * @param <T> type of element to be stored in this treap.
+ */
+public class ConcurrentTreap<T> implements Tree<T> {
+    /**
+     * The root of the current version of this treap.
+     */
+    private final AtomicReference<Node<T>> root = new AtomicReference<>();
+    /**
+     * Lock held by a batch that failed to commit too many times.
+     * The other writers wait for it before each attempt while it is held.
+     */
+    private final ReentrantLock commitLock = new ReentrantLock();
+
+    /**
+     * The number of failed attempts after which a batch takes the commit lock.
+     */
+    private static final int MAX_BATCH_ATTEMPTS = 4;
+
+    /**
+     * The comparator or null if this treap orders the elements in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a treap without any comparator.
+     */
+    public ConcurrentTreap() {
+        this(null);
+    }
+
+    /**
+     * Creates a treap with the specified comparator.
+     * @param comparator the comparator that will be used to order the elements in this treap.
+     */
+    public ConcurrentTreap(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Adds the specified element to this treap if it is not already present.
+     * @param x element to be added.
+     * @return true if this treap did not already contain the element.
+     * @throws NullPointerException if the specified element is null.
+     */
+    public boolean add(T x) {
+        if (x == null)
+            throw new NullPointerException();
+
+        double y = ThreadLocalRandom.current().nextDouble();
+
+        while (true) {
+            awaitCommit();
+
+            Node<T> current = root.get();
+
+            if (find(current, x) != null)
+                return false;
+
+            if (root.compareAndSet(current, insert(current, x, y)))
+                return true;
+        }
+    }
+
+    /**
+     * Adds all the elements from the specified collection to this treap
+     * that are not already present. All the elements are committed at once:
+     * either all of them become visible to the readers or none of them.
+     * If the commit fails several times because of the other writers
+     * the batch takes the commit lock and the other writers wait until it is committed.
+     * @param elements collection of the elements to be added.
+     * @return true if this treap changed as a result of the call.
+     * @throws NullPointerException if the collection or any of its elements is null.
+     */
+    public boolean addAll(Collection<? extends T> elements) {
+        Object[] array = elements.toArray();
+        double[] priorities = new double[array.length];
+
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == null)
+                throw new NullPointerException();
+
+            priorities[i] = ThreadLocalRandom.current().nextDouble();
+        }
+
+        for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            awaitCommit();
+
+            Boolean result = tryAddAll(array, priorities);
+
+            if (result != null)
+                return result;
+        }
+
+        commitLock.lock();
+
+        try {
+            while (true) {
+                Boolean result = tryAddAll(array, priorities);
+
+                if (result != null)
+                    return result;
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the specified element from this treap if it is present.
+     * @param x element to be removed.
+     * @return true if this treap contained the element.
+     * @throws NullPointerException if the specified element is null.
+     */
+    public boolean remove(T x) {
+        if (x == null)
+            throw new NullPointerException();
+
+        while (true) {
+            awaitCommit();
+
+            Node<T> current = root.get();
+
+            if (find(current, x) == null)
+                return false;
+
+            if (root.compareAndSet(current, delete(current, x)))
+                return true;
+        }
+    }
+
+    /**
+     * Returns true only if this treap contains the specified element.
+     * @param x element whose presence in this treap is to be tested.
+     * @return true if this treap contains the element, false otherwise.
+     * @throws NullPointerException if the specified element is null.
+     */
+    public boolean contains(T x) {
+        return find(root.get(), x) != null;
+    }
+
+    /**
+     * Returns the element from this treap that is equal to the specified one.
+     * @param x element to be searched for.
+     * @return element equal to the specified one or null if there is no such element.
+     * @throws NullPointerException if the specified element is null.
+     */
+    public T get(T x) {
+        Node<T> N = find(root.get(), x);
+
+        return N == null ? null : N.value;
+    }
+
+    /**
+     * Returns the size of this treap.
+     * @return the size of this treap.
+     */
+    @Override
+    public int getSize() {
+        return sizeOf(root.get());
+    }
+
+    /**
+     * Returns true if this treap contains no elements.
+     * @return tree if this treap contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return root.get() == null;
+    }
+
+    /**
+     * Removes all the elements from this treap.
+     * This treap will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        root.set(null);
+    }
+
+    /**
+     * Returns an array containing all the elements from this treap in ascending order.
+     * @return an array containing all the elements from this treap.
+     */
+    @Override
+    public Object[] toArray() {
+        Node<T> N = root.get();
+
+        return Trees.<T>toArray(N, sizeOf(N));
+    }
+
+    /**
+     * Returns an array containing all the elements from this treap in ascending order.
+     * @param a the array into which the elements from this treap are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @param <T2> type of the array elements.
+     * @return an array containing all of the elements from this treap.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Node<T> N = root.get();
+
+        return Trees.<T2>toArray(a, N, sizeOf(N));
+    }
+
+    /**
+     * Returns a string representation of this treap.
+     * @return string representation of this treap.
+     */
+    @Override
+    public String toString() {
+        Node<T> N = root.get();
+
+        return Trees.<T>toString(N, sizeOf(N));
+    }
+
+    /**
+     * Returns an iterator over the elements from the current version of this treap in ascending order.
+     * Later modifications of this treap are not visible to the iterator.
+     * @return an iterator over the elements from this treap.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Node<T> N = root.get();
+
+        return Trees.<T>getIterator(N, sizeOf(N));
+    }
+
+    /**
+     * Makes one attempt to commit a batch of elements.
+     * Builds a new version from the current root with all the absent elements added
+     * and tries to install it.
+     * @param array elements to be added.
+     * @param priorities priorities of the new nodes of the elements.
+     * @return true if the new version was installed, false if all the elements were
+     * already present, or null if another writer has changed the root in the meantime.
+     */
+    private Boolean tryAddAll(Object[] array, double[] priorities) {
+        Node<T> current = root.get();
+        Node<T> updated = current;
+
+        for (int i = 0; i < array.length; i++) {
+            T x = (T) array[i];
+
+            if (find(updated, x) == null)
+                updated = insert(updated, x, priorities[i]);
+        }
+
+        if (updated == current)
+            return false;
+
+        if (root.compareAndSet(current, updated))
+            return true;
+
+        return null;
+    }
+
+    /**
+     * Waits until the batch that holds the commit lock (if any) is committed.
+     * Costs one volatile read if the lock is free.
+     */
+    private void awaitCommit() {
+        if (commitLock.isLocked() && !commitLock.isHeldByCurrentThread()) {
+            commitLock.lock();
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the node that stores the element equal to the specified one.
+     * @param N treap to be searched.
+     * @param x element to be searched for.
+     * @return found node or null if there is no such node.
+     * @throws NullPointerException if the specified element is null.
+     */
+    private Node<T> find(Node<T> N, T x) {
+        if (x == null)
+            throw new NullPointerException();
+
+        while (N != null) {
+            int result = compare(x, N.value);
+
+            if (result == 0)
+                return N;
+
+            N = result < 0 ? N.L : N.R;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a new version of the specified treap with a new node added.
+     * The new node replaces the first node on the search path whose priority is lower,
+     * that node is splitted between the children of the new one.
+     * Only the nodes above the new one are copied.
+     * The treap must not contain the element.
+     * @param N treap to be changed.
+     * @param x element to be added.
+     * @param y priority of the new node.
+     * @return new version of the treap.
+     */
+    private Node<T> insert(Node<T> N, T x, double y) {
+        if (N == null || y > N.y) {
+            Node<T>[] parts = (Node<T>[]) new Node[2];
+            split(N, x, parts);
+
+            return new Node<>(x, y, parts[0], parts[1]);
+        }
+
+        if (compare(x, N.value) < 0)
+            return new Node<>(N.value, N.y, insert(N.L, x, y), N.R);
+        else
+            return new Node<>(N.value, N.y, N.L, insert(N.R, x, y));
+    }
+
+    /**
+     * Returns a new version of the specified treap without the specified element.
+     * The node of the element is replaced by the merge of its children.
+     * Only the nodes above it and on the merged spines are copied.
+     * The treap must contain the element.
+     * @param N treap to be changed.
+     * @param x element to be removed.
+     * @return new version of the treap.
+     */
+    private Node<T> delete(Node<T> N, T x) {
+        int result = compare(x, N.value);
+
+        if (result == 0)
+            return merge(N.L, N.R);
+
+        if (result < 0)
+            return new Node<>(N.value, N.y, delete(N.L, x), N.R);
+        else
+            return new Node<>(N.value, N.y, N.L, delete(N.R, x));
+    }
+
+    /**
+     * Merges two specified treaps into a new one by path copying.
+     * All the elements of the first treap must be less than all the elements of the second one.
+     * Only the nodes on the right spine of the first treap and on the left spine
+     * of the second one are copied.
+     * @param L first treap to be merged.
+     * @param R second treap to be merged.
+     * @return new treap which contains all elements from two that were merged.
+     */
+    private Node<T> merge(Node<T> L, Node<T> R) {
+        if (L == null) return R;
+        if (R == null) return L;
+
+        if (L.y > R.y)
+            return new Node<>(L.value, L.y, L.L, merge(L.R, R));
+        else
+            return new Node<>(R.value, R.y, merge(L, R.L), R.R);
+    }
+
+    /**
+     * Splits a specified treap into two new treaps by path copying using the element.
+     * Only the nodes on the search path of the element are copied.
+     * The treap must not contain the element.
+     * @param N treap to be splitted.
+     * @param x split element.
+     * @param parts array that receives the treap of the elements less than the split element
+     * at index 0 and the treap of the elements greater than the split element at index 1.
+     */
+    private void split(Node<T> N, T x, Node<T>[] parts) {
+        if (N == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+
+        if (compare(N.value, x) < 0) {
+            split(N.R, x, parts);
+            parts[0] = new Node<>(N.value, N.y, N.L, parts[0]);
+        } else {
+            split(N.L, x, parts);
+            parts[1] = new Node<>(N.value, N.y, parts[1], N.R);
+        }
+    }
+
+    /**
+     * Returns the size of the specified treap.
+     * @param N treap or null.
+     * @return the size of the treap.
+     */
+    private static int sizeOf(Node<?> N) {
+        return N == null ? 0 : N.size;
+    }
+
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * An immutable node of a persistent treap.
+     * Actually each node can be considered as a treap.
+     * All the fields are final, so a node is safely visible to any thread
+     * that has read a root it is reachable from.
+     * @param <T> type of the element stored in the node.
+     */
+    private static final class Node<T> extends Trees.Node<T> {
+        /**
+         * First key of the treap.
+         * Also the value stored in this node.
+         */
+        private final T value;
+        /**
+         * Second key of the treap.
+         */
+        private final double y;
+        /**
+         * Left child.
+         */
+        private final Node<T> L;
+        /**
+         * Right child.
+         */
+        private final Node<T> R;
+        /**
+         * Number of the nodes in the treap.
+         */
+        private final int size;
+
+        /**
+         * Creates a new node.
+         * @param value value to be stored in the node.
+         * @param y priority of the node.
+         * @param L left child.
+         * @param R right child.
+         */
+        Node(T value, double y, Node<T> L, Node<T> R) {
+            this.value = value;
+            this.y = y;
+            this.L = L;
+            this.R = R;
+            this.size = sizeOf(L) + sizeOf(R) + 1;
+        }
+
+        /**
+         * Returns the value stored.
+         * @return value stored.
+         */
+        @Override
+        T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns left child.
+         * @return left child.
+         */
+        @Override
+        Node<T> getL() {
+            return L;
+        }
+
+        /**
+         * Returns right child.
+         * @return right child.
+         */
+        @Override
+        Node<T> getR() {
+            return R;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package tree;
 
+import java.util.function.Consumer;
+
 /**
  * <p>Common interface for all heaps in this package.
  * Contains all common for heaps methods, clarifying the features
@@ -25,4 +27,51 @@ public interface Heap<T> extends Tree<T> {
      * @return the top element in the heap or null if the heap is empty.
      */
     T poll();
+
+    /**
+     * Removes at most the specified number of elements from the top of the heap
+     * and passes them to the specified consumer in the order in which they would be polled.
+     * Implementations may override this method to remove a batch of elements
+     * faster than by polling them one by one.
+     * @param sink consumer that accepts the removed elements.
+     * @param maxElements maximum number of elements to be removed.
+     * @return number of elements removed.
+     * @throws IllegalArgumentException if the maximum number of elements is negative.
+     */
+    default int drainTo(Consumer<? super T> sink, int maxElements) {
+        if (maxElements < 0)
+            throw new IllegalArgumentException();
+
+        int count = 0;
+        T value;
+
+        while (count < maxElements && (value = poll()) != null) {
+            sink.accept(value);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Removes at most the specified number of elements from the top of the heap
+     * and stores them at the beginning of the specified array in the order in which they would be polled.
+     * @param k maximum number of elements to be removed.
+     * @param out array into which the removed elements are to be stored.
+     * @return number of elements removed.
+     * @throws IndexOutOfBoundsException if k is negative or greater than the length of the array.
+     */
+    default int pollBatch(int k, T[] out) {
+        if (k < 0 || k > out.length)
+            throw new IndexOutOfBoundsException("K: " + k + " length: " + out.length);
+
+        return drainTo(new Consumer<T>() {
+            private int cursor = 0;
+
+            @Override
+            public void accept(T value) {
+                out[cursor++] = value;
+            }
+        }, k);
+    }
 }
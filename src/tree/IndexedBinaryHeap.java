@@ -0,0 +1,582 @@
+package tree;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a queue that allows to change
+ * the priority of the elements already stored in it.</p>
+ * <p>The implementation is based on a binary heap.
+ * Each stored element is wrapped into a handle that is returned by the
+ * <strong>insert</strong> operation. The handle always knows its current position in the heap,
+ * so the element can be found without any search when its priority changes or when it is removed.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/peek/poll/decreaseKey/increaseKey/remove operations.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class IndexedBinaryHeap<T> implements Heap<T> {
+    /**
+     * List of the handles stored in this binary heap.
+     */
+    private Handle<T>[] list;
+    /**
+     * Size of this binary heap.
+     */
+    private int size = 0;
+
+    /**
+     * The default capacity of this binary heap.
+     * When a binary heap is created without the specified capacity
+     * it gets the default capacity.
+     */
+    private static final int DEFAULT_INITIAL_CAPACITY = 12;
+    /**
+     * Comparator used to order the elements in this binary heap
+     * or null if the elements are ordered in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a binary heap with a default capacity
+     * and without any comparator.
+     */
+    public IndexedBinaryHeap() {
+        this(DEFAULT_INITIAL_CAPACITY, null);
+    }
+
+    /**
+     * Creates a binary heap with the specified capacity
+     * and without any comparator.
+     * @param initialCapacity capacity of the binary heap.
+     */
+    public IndexedBinaryHeap(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    /**
+     * Creates a binary heap with the default capacity
+     * and with the specified comparator.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     */
+    public IndexedBinaryHeap(Comparator<? super T> comparator) {
+        this(DEFAULT_INITIAL_CAPACITY, comparator);
+    }
+
+    /**
+     * Creates a binary heap with the specified capacity
+     * and the specified comparator.
+     * @param initialCapacity capacity of the binary heap.
+     * @param comparator comparator that will be used to order the elements in this binary heap.
+     */
+    public IndexedBinaryHeap(int initialCapacity, Comparator<? super T> comparator) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+
+        list = (Handle<T>[]) new Handle[initialCapacity];
+        this.comparator = comparator;
+    }
+
+    /**
+     * Appends the specified element to the end of this queue.
+     * @param value element to be appended.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        insert(value);
+    }
+
+    /**
+     * Appends the specified element to the end of this queue
+     * and returns the handle that refers to it.
+     * @param value element to be appended.
+     * @return handle that refers to the appended element.
+     * @throws NullPointerException if the element is null.
+     */
+    public Handle<T> insert(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        if (size == list.length)
+            increaseCapacity();
+
+        Handle<T> handle = new Handle<>(this, value, size);
+        list[size++] = handle;
+
+        siftUp(size - 1);
+
+        return handle;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue without removing it.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        if (size == 0)
+            return null;
+
+        return list[0].value;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue removing it.
+     * The handle of the element becomes invalid.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        if (size == 0)
+            return null;
+
+        T result = list[0].value;
+        removeAt(0);
+
+        return result;
+    }
+
+    /**
+     * Replaces the value of the element referred by the specified handle
+     * with a value that is not greater than the current one.
+     * @param handle handle of the element whose value is to be decreased.
+     * @param value new value of the element.
+     * @throws NullPointerException if the value is null.
+     * @throws IllegalArgumentException if the handle does not refer to an element of this queue
+     * or the new value is greater than the current one.
+     */
+    public void decreaseKey(Handle<T> handle, T value) {
+        checkHandle(handle);
+
+        if (value == null)
+            throw new NullPointerException();
+
+        if (compare(value, handle.value) > 0)
+            throw new IllegalArgumentException("New value is greater than the current one");
+
+        handle.value = value;
+        siftUp(handle.index);
+    }
+
+    /**
+     * Replaces the value of the element referred by the specified handle
+     * with a value that is not less than the current one.
+     * @param handle handle of the element whose value is to be increased.
+     * @param value new value of the element.
+     * @throws NullPointerException if the value is null.
+     * @throws IllegalArgumentException if the handle does not refer to an element of this queue
+     * or the new value is less than the current one.
+     */
+    public void increaseKey(Handle<T> handle, T value) {
+        checkHandle(handle);
+
+        if (value == null)
+            throw new NullPointerException();
+
+        if (compare(value, handle.value) < 0)
+            throw new IllegalArgumentException("New value is less than the current one");
+
+        handle.value = value;
+        siftDown(handle.index);
+    }
+
+    /**
+     * Removes the element referred by the specified handle from this queue.
+     * The handle becomes invalid.
+     * @param handle handle of the element to be removed.
+     * @return true if the element was removed, false if the handle
+     * does not refer to an element of this queue.
+     */
+    public boolean remove(Handle<T> handle) {
+        if (!contains(handle))
+            return false;
+
+        removeAt(handle.index);
+        return true;
+    }
+
+    /**
+     * Returns true only if the specified handle refers to an element of this queue.
+     * @param handle handle to be tested.
+     * @return true if the handle refers to an element of this queue, false otherwise.
+     */
+    public boolean contains(Handle<T> handle) {
+        return handle != null && handle.heap == this;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * This queue will be empty after this call returns
+     * and all the handles of the removed elements become invalid.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            list[i].invalidate();
+
+        list = (Handle<T>[]) new Handle[DEFAULT_INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+
+        for (int i = 0; i < size; i++)
+            result[i] = list[i].value;
+
+        return result;
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(result, size, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(list)
+                .limit(size)
+                .map(n -> String.valueOf(n.value))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public T next() {
+                if (cursor < size) {
+                    return list[cursor++].value;
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Removes the element at the specified position and invalidates its handle.
+     * The last element takes its place and is sifted in the appropriate direction.
+     * @param i index of the element to be removed.
+     */
+    private void removeAt(int i) {
+        Handle<T> removed = list[i];
+        Handle<T> last = list[--size];
+        list[size] = null;
+
+        if (i != size) {
+            list[i] = last;
+            last.index = i;
+
+            siftDown(i);
+            if (list[i] == last)
+                siftUp(i);
+        }
+
+        removed.invalidate();
+    }
+
+    /**
+     * Checks that the specified handle refers to an element of this queue.
+     * @param handle handle to be checked.
+     * @throws IllegalArgumentException if the handle does not refer to an element of this queue.
+     */
+    private void checkHandle(Handle<T> handle) {
+        if (!contains(handle))
+            throw new IllegalArgumentException("Handle does not refer to an element of this heap");
+    }
+
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * Increases the capacity of this binary heap.
+     * It will be called if during the add operation the program detects
+     * that there is no free space in the list to store elements.
+     */
+    private void increaseCapacity() {
+        int oldCapacity = list.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1) + 1;
+
+        list = Arrays.copyOf(list, newCapacity);
+    }
+
+    /**
+     * Starts the process of sifting down the element at the specified position.
+     * Will call <strong>siftDownAsComparable</strong> or <strong>siftDownWithComparator</strong>
+     * depending on the presence of a comparator in this binary heap.
+     * @param i index of the element that will be sifted down.
+     */
+    private void siftDown(int i) {
+        if (comparator == null)
+            siftDownAsComparable(i);
+        else
+            siftDownWithComparator(i);
+    }
+
+    /**
+     * Sifts down the element at the specified position.
+     * Is used when this binary heap has no comparator and orders
+     * its elements in a natural order.
+     * @param i index of the element that will be sifted down.
+     */
+    private void siftDownAsComparable(int i) {
+        while (2 * i + 1 < size) {
+            int leftChildIndex = 2 * i + 1;
+            int rightChildIndex = 2 * i + 2;
+            int swapIndex = leftChildIndex;
+
+            if (rightChildIndex < size) {
+                Comparable<? super T> rightChild = (Comparable<? super T>) list[rightChildIndex].value;
+                T leftChild = list[leftChildIndex].value;
+
+                if (rightChild.compareTo(leftChild) < 0)
+                    swapIndex = rightChildIndex;
+            }
+
+            Comparable<? super T> element = (Comparable<? super T>) list[i].value;
+            T swapElement = list[swapIndex].value;
+
+            if (element.compareTo(swapElement) <= 0)
+                break;
+
+            swap(i, swapIndex);
+            i = swapIndex;
+        }
+    }
+
+    /**
+     * Sifts down the element at the specified position.
+     * Is used when this binary heap has the comparator and orders
+     * its elements using it.
+     * @param i index of the element that will be sifted down.
+     */
+    private void siftDownWithComparator(int i) {
+        while (2 * i + 1 < size) {
+            int leftChildIndex = 2 * i + 1;
+            int rightChildIndex = 2 * i + 2;
+            int swapIndex = leftChildIndex;
+
+            if (rightChildIndex < size) {
+                T rightChild = list[rightChildIndex].value;
+                T leftChild = list[leftChildIndex].value;
+
+                if (comparator.compare(rightChild, leftChild) < 0)
+                    swapIndex = rightChildIndex;
+            }
+
+            T element = list[i].value;
+            T swapElement = list[swapIndex].value;
+
+            if (comparator.compare(element, swapElement) <= 0)
+                break;
+
+            swap(i, swapIndex);
+            i = swapIndex;
+        }
+    }
+
+    /**
+     * Starts the process of sifting the an element at the specified position.
+     * Will call <strong>siftUpAsComparable</strong> or <strong>siftUpWithComparator</strong>
+     * depending on the presence of a comparator in this binary heap.
+     * @param i index of the element that will be sifted up.
+     */
+    private void siftUp(int i) {
+        if (comparator == null)
+            siftUpAsComparable(i);
+        else
+            siftUpWithComparator(i);
+    }
+
+    /**
+     * Sifts up the element at the specified position.
+     * Is used when this binary heap has no comparator and orders
+     * its elements in a natural order.
+     * @param i index of the element that will be sifted up.
+     */
+    private void siftUpAsComparable(int i) {
+        while (i > 0) {
+            int parentIndex = (i - 1) >> 1;
+            Comparable<? super T> element = (Comparable<? super T>) list[i].value;
+            T parent = list[parentIndex].value;
+
+            if (element.compareTo(parent) >= 0)
+                break;
+
+            swap(i, parentIndex);
+            i = parentIndex;
+        }
+    }
+
+    /**
+     * Sifts up the element at the specified position.
+     * Is used when this binary heap has the comparator and orders
+     * its elements using it.
+     * @param i index of the element that will be sifted up.
+     */
+    private void siftUpWithComparator(int i) {
+        while (i > 0) {
+            int parentIndex = (i - 1) >> 1;
+            T element = list[i].value;
+            T parent = list[parentIndex].value;
+
+            if (comparator.compare(element, parent) >= 0)
+                break;
+
+            swap(i, parentIndex);
+            i = parentIndex;
+        }
+    }
+
+    /**
+     * swaps two handles at specified positions
+     * and updates the positions stored in them.
+     * @param i index of the first handle.
+     * @param j index of the second handle.
+     */
+    private void swap(int i, int j) {
+        Handle<T> c = list[i];
+        list[i] = list[j];
+        list[j] = c;
+
+        list[i].index = i;
+        list[j].index = j;
+    }
+
+    /**
+     * A handle of an element stored in an indexed binary heap.
+     * Refers to the element as long as it stays in the heap
+     * and keeps track of its current position in the list of the heap.
+     * @param <T> type of the element referred by the handle.
+     */
+    public static final class Handle<T> {
+        /**
+         * The heap that stores the element or null if the element was removed.
+         */
+        private IndexedBinaryHeap<T> heap;
+        /**
+         * Value of the element.
+         */
+        private T value;
+        /**
+         * Current position of the element in the list of the heap.
+         */
+        private int index;
+
+        /**
+         * Creates a new handle.
+         * @param heap heap that stores the element.
+         * @param value value of the element.
+         * @param index position of the element in the list of the heap.
+         */
+        private Handle(IndexedBinaryHeap<T> heap, T value, int index) {
+            this.heap = heap;
+            this.value = value;
+            this.index = index;
+        }
+
+        /**
+         * Returns the current value of the element.
+         * @return current value of the element.
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns true only if the element is still stored in the heap.
+         * @return true if the element is still stored in the heap, false otherwise.
+         */
+        public boolean isValid() {
+            return heap != null;
+        }
+
+        /**
+         * Detaches this handle from the heap.
+         */
+        private void invalidate() {
+            heap = null;
+            index = -1;
+        }
+    }
+}
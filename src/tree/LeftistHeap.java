@@ -1,15 +1,25 @@
 package tree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
 
 /**
  * <p>This class is an implementation of a queue.</p>
- * <p>The implementation is based on a leftist heap.</p>
+ * <p>The implementation is based on a leftist heap.
+ * Each node also refers to its parent, so an element added by the <strong>insert</strong>
+ * operation can later be removed or decreased through the returned handle:
+ * its subtree is cut out and merged back, then the ranks are repaired upwards.
+ * A handle is only accepted by the heap that currently stores its element.</p>
  * <p>An instance of this class can contain any type of elements that could be ordered
  * via comparator or in a natural order.</p>
  * <p>This class offers an almost O(log(n)) time performance
- * on add/peek/poll operations.</p>
+ * on add/peek/poll/remove/decreaseKey operations.</p>
  * <p><strong>Note that this implementation is not synchronized.</strong></p>
  * @param <T> type of element to be stored in this queue.
  */
@@ -22,6 +32,16 @@ public class LeftistHeap<T> implements Heap<T> {
      * The number of elements in this leftist heap.
      */
     private int size;
+    /**
+     * Nodes of the right spine visited by the last merge.
+     * Is kept between merges to avoid allocating it each time.
+     */
+    private Object[] spine = new Object[16];
+    /**
+     * Token of the nodes of this leftist heap.
+     * Tells whether a handle refers to an element of this leftist heap.
+     */
+    private Trees.Owner owner = new Trees.Owner(this);
 
     /**
      * The comparator or null if this leftist heap orders the elements in a natural order.
@@ -32,7 +52,7 @@ public class LeftistHeap<T> implements Heap<T> {
      * Creates a leftist heap without any comparator.
      */
     public LeftistHeap() {
-        this(null);
+        this((Comparator<T>) null);
     }
     /**
      *
@@ -44,6 +64,102 @@ public class LeftistHeap<T> implements Heap<T> {
         this.comparator = comparator;
     }
 
+    /**
+     * Creates a leftist heap from the elements stored in the specified collection.
+     * This leftist heap will not get any comparator.
+     * @param collection collection of the elements from which the leftist heap will be created.
+     * @throws NullPointerException if the collection contains null.
+     */
+    public LeftistHeap(Collection<? extends T> collection) {
+        this(collection, null);
+    }
+
+    /**
+     * Creates a leftist heap with the specified comparator from the elements stored in the specified collection.
+     * Each element becomes a single-node leftist heap, then the heaps are merged in pairs
+     * round by round, so the leftist heap is built in O(n) time.
+     * @param collection collection of the elements from which the leftist heap will be created.
+     * @param comparator the comparator that will be used to order the elements in this leftist heap.
+     * @throws NullPointerException if the collection contains null.
+     */
+    public LeftistHeap(Collection<? extends T> collection, Comparator<T> comparator) {
+        this.comparator = comparator;
+
+        Object[] nodes = collection.toArray();
+
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null)
+                throw new NullPointerException();
+
+            nodes[i] = new Node((T) nodes[i]);
+        }
+
+        this.root = mergeAll(nodes, nodes.length);
+        this.size = nodes.length;
+    }
+
+    /**
+     * Returns a collector that accumulates the elements of a stream into a leftist heap
+     * without any comparator.
+     * @param <T> type of the elements.
+     * @return a collector that accumulates the elements into a leftist heap.
+     * @see #collector(Comparator)
+     */
+    public static <T> Collector<T, ?, LeftistHeap<T>> collector() {
+        return collector(null);
+    }
+
+    /**
+     * Returns a collector that accumulates the elements of a stream into a leftist heap
+     * with the specified comparator.
+     * Each thread of a parallel stream adds its elements into its own partial leftist heap,
+     * then the partial heaps are merged in O(log(n)) time each.
+     * @param comparator the comparator that will be used to order the elements in the leftist heap.
+     * @param <T> type of the elements.
+     * @return a collector that accumulates the elements into a leftist heap.
+     */
+    public static <T> Collector<T, ?, LeftistHeap<T>> collector(Comparator<T> comparator) {
+        return Collector.of(
+                () -> new LeftistHeap<T>(comparator),
+                LeftistHeap::add,
+                (a, b) -> {
+                    a.mergeWith(b);
+                    return a;
+                },
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Returns a collector that accumulates the elements of a stream into a leftist heap
+     * without any comparator, building each partial heap in O(n) time.
+     * @param <T> type of the elements.
+     * @return a collector that accumulates the elements into a leftist heap.
+     * @see #bulkCollector(Comparator)
+     */
+    public static <T> Collector<T, ?, LeftistHeap<T>> bulkCollector() {
+        return bulkCollector(null);
+    }
+
+    /**
+     * Returns a collector that accumulates the elements of a stream into a leftist heap
+     * with the specified comparator, building each partial heap in O(n) time.
+     * Each thread of a parallel stream only collects its elements into a list.
+     * When two partial results are combined each list is turned into a leftist heap
+     * by pairwise merges, which happens in parallel as well, then the heaps are merged.
+     * @param comparator the comparator that will be used to order the elements in the leftist heap.
+     * @param <T> type of the elements.
+     * @return a collector that accumulates the elements into a leftist heap.
+     */
+    public static <T> Collector<T, ?, LeftistHeap<T>> bulkCollector(Comparator<T> comparator) {
+        return Collector.of(
+                () -> new Batch<T>(comparator),
+                Batch::add,
+                Batch::combine,
+                Batch::finish,
+                Collector.Characteristics.UNORDERED);
+    }
+
     /**
      * Appends the specified element to the end of this queue.
      * @param value element to be appended.
@@ -51,17 +167,32 @@ public class LeftistHeap<T> implements Heap<T> {
      */
     @Override
     public void add(T value) {
+        insert(value);
+    }
+
+    /**
+     * Appends the specified element to the end of this queue
+     * and returns the handle that refers to it.
+     * @param value element to be appended.
+     * @return handle that refers to the appended element.
+     * @throws NullPointerException if the element is null.
+     */
+    public Handle<T> insert(T value) {
         if (value == null)
             throw new NullPointerException();
 
+        Node N = new Node(value);
+
         if (root == null) {
-            root = new Node(value);
+            root = N;
             size = 1;
-            return;
+            return N;
         }
 
-        root = merge(root, new Node(value));
+        root = merge(root, N);
         size++;
+
+        return N;
     }
 
     /**
@@ -87,26 +218,164 @@ public class LeftistHeap<T> implements Heap<T> {
         if (size == 0)
             return null;
 
-        T result = root.value;
+        Node N = root;
 
-        root = merge(root.L, root.R);
+        root = merge(N.L, N.R);
         size--;
 
-        return result;
+        N.invalidate();
+
+        return N.value;
+    }
+
+    /**
+     * Removes the element referred by the specified handle from this queue.
+     * The subtree of the element is cut out, its children are merged
+     * and put in its place, then the ranks of its ancestors are repaired.
+     * The handle must refer to an element of this queue, it becomes invalid.
+     * @param handle handle of the element to be removed.
+     * @throws IllegalArgumentException if the handle is invalid.
+     */
+    public void remove(Handle<T> handle) {
+        Node N = checkHandle(handle);
+
+        if (N == root) {
+            poll();
+            return;
+        }
+
+        Node parent = N.P;
+        Node replacement = merge(N.L, N.R);
+
+        if (parent.L == N)
+            parent.L = replacement;
+        else
+            parent.R = replacement;
+
+        if (replacement != null)
+            replacement.P = parent;
+
+        repairUp(parent);
+        size--;
+
+        N.invalidate();
     }
 
     /**
-     * Merges this leftist heap with another leftist heap.
-     * Returns a new leftist heap as a result.
+     * Replaces the value of the element referred by the specified handle
+     * with a value that is not greater than the current one.
+     * The subtree of the element is cut out, the ranks of its former ancestors
+     * are repaired and the subtree is merged back with the root.
+     * The handle must refer to an element of this queue.
+     * @param handle handle of the element whose value is to be decreased.
+     * @param value new value of the element.
+     * @throws NullPointerException if the value is null.
+     * @throws IllegalArgumentException if the handle is invalid
+     * or the new value is greater than the current one.
+     */
+    public void decreaseKey(Handle<T> handle, T value) {
+        Node N = checkHandle(handle);
+
+        if (value == null)
+            throw new NullPointerException();
+
+        if (compare(value, N.value) > 0)
+            throw new IllegalArgumentException("New value is greater than the current one");
+
+        N.value = value;
+
+        if (N == root)
+            return;
+
+        Node parent = N.P;
+
+        if (parent.L == N)
+            parent.L = null;
+        else
+            parent.R = null;
+
+        N.P = null;
+
+        repairUp(parent);
+        root = merge(root, N);
+    }
+
+    /**
+     * Removes at most the specified number of elements from the beginning of the queue
+     * and passes them to the specified consumer in the order in which they would be polled.
+     * Instead of merging the children of the root after each removal, the roots of the
+     * remaining subtrees are kept in a small binary heap, so each element is found in
+     * O(log(k)) time. The remaining subtrees are merged back pairwise once at the end.
+     * @param sink consumer that accepts the removed elements.
+     * @param maxElements maximum number of elements to be removed.
+     * @return number of elements removed.
+     * @throws IllegalArgumentException if the maximum number of elements is negative.
+     */
+    @Override
+    public int drainTo(Consumer<? super T> sink, int maxElements) {
+        if (maxElements < 0)
+            throw new IllegalArgumentException();
+
+        if (maxElements == 0 || root == null)
+            return 0;
+
+        Comparator<Node> nodeComparator;
+
+        if (comparator == null)
+            nodeComparator = (a, b) -> ((Comparable<? super T>) a.value).compareTo(b.value);
+        else
+            nodeComparator = (a, b) -> comparator.compare(a.value, b.value);
+
+        BinaryHeap<Node> frontier = new BinaryHeap<>(Math.min(maxElements, size) + 1, nodeComparator);
+        frontier.add(root);
+        root = null;
+
+        int count = 0;
+
+        try {
+            while (count < maxElements && !frontier.isEmpty()) {
+                Node N = frontier.poll();
+
+                if (N.L != null)
+                    frontier.add(N.L);
+                if (N.R != null)
+                    frontier.add(N.R);
+
+                N.invalidate();
+                size--;
+                count++;
+
+                sink.accept(N.value);
+            }
+        } finally {
+            root = mergeAll(frontier.toArray(), frontier.getSize());
+        }
+
+        return count;
+    }
+
+    /**
+     * Moves all the elements from another leftist heap into this one.
+     * The other leftist heap will be empty after this call returns,
+     * the handles of its elements stay valid and now refer to the elements of this leftist heap.
      * @param anotherHeap specified leftist heap.
      * @throws NullPointerException if the specified leftist heap is null.
+     * @throws IllegalArgumentException if the specified leftist heap is this one.
      */
-    public void mergeWith(LeftistHeap anotherHeap) {
+    public void mergeWith(LeftistHeap<T> anotherHeap) {
         if (anotherHeap == null)
             throw new NullPointerException();
 
-        root = merge(root, (Node)anotherHeap.root);
+        if (anotherHeap == this)
+            throw new IllegalArgumentException();
+
+        root = merge(root, anotherHeap.root);
         size += anotherHeap.size;
+
+        anotherHeap.owner.forwardTo(owner);
+        anotherHeap.owner = new Trees.Owner(anotherHeap);
+        anotherHeap.root = null;
+        anotherHeap.size = 0;
     }
 
     /**
@@ -129,10 +398,13 @@ public class LeftistHeap<T> implements Heap<T> {
 
     /**
      * Removes all the elements from this queue.
-     * This queue will be empty after this call returns.
+     * This queue will be empty after this call returns
+     * and all the handles of the removed elements become invalid.
      */
     @Override
     public void clear() {
+        owner.release();
+        owner = new Trees.Owner(this);
         root = null;
         size = 0;
     }
@@ -188,14 +460,53 @@ public class LeftistHeap<T> implements Heap<T> {
      * @return new leftist heap which contains all the elements from two that were merged.
      */
     private Node merge(Node L, Node R) {
+        Node result;
+
         if (comparator == null)
-            return mergeAsComparable(L, R);
+            result = mergeAsComparable(L, R);
         else
-            return mergeWithComparator(L, R);
+            result = mergeWithComparator(L, R);
+
+        if (result != null)
+            result.P = null;
+
+        return result;
+    }
+
+    /**
+     * Merges the specified leftist heaps into one.
+     * The heaps are merged in pairs round by round, like in a queue of pairwise merges,
+     * so n heaps of one node each are merged in O(n) time.
+     * @param heaps array of leftist heaps to be merged, it gets overwritten.
+     * @param count number of leftist heaps at the beginning of the array.
+     * @return new leftist heap which contains all the elements from those that were merged.
+     */
+    private Node mergeAll(Object[] heaps, int count) {
+        if (count == 0)
+            return null;
+
+        while (count > 1) {
+            int merged = 0;
+
+            for (int i = 0; i + 1 < count; i += 2)
+                heaps[merged++] = merge((Node) heaps[i], (Node) heaps[i + 1]);
+
+            if (count % 2 == 1)
+                heaps[merged++] = heaps[count - 1];
+
+            count = merged;
+        }
+
+        Node result = (Node) heaps[0];
+        result.P = null;
+
+        return result;
     }
 
     /**
      * Merges two specified leftist heaps into one without using the comparator.
+     * The merge walks down the right spines of both heaps top-down without recursion,
+     * each time linking the node with the lesser value, then repairs the visited nodes bottom-up.
      * @param L first leftist heap to be merged.
      * @param R second leftist heap to be merged.
      * @return new leftist heap which contains all the elements from two that were merged.
@@ -204,27 +515,45 @@ public class LeftistHeap<T> implements Heap<T> {
         if (L == null) return R;
         if (R == null) return L;
 
-        Node N = null;
+        if (((Comparable<? super T>) L.value).compareTo(R.value) > 0) {
+            Node temp = L;
+            L = R;
+            R = temp;
+        }
+
+        Node result = L;
+        int depth = 0;
+
+        while (true) {
+            pushSpine(depth++, L);
+
+            Node next = L.R;
+
+            if (next == null) {
+                L.R = R;
+                break;
+            }
 
-        Comparable<? super T> leftValue = (Comparable<? super T>) L.value;
-        T rightValue = (T) R.value;
+            Comparable<? super T> nextValue = (Comparable<? super T>) next.value;
 
-        if (leftValue.compareTo(rightValue) <= 0) {
-            N = L;
-            N.R = mergeAsComparable(L.R, R);
-        } else {
-            N = R;
-            N.L = mergeAsComparable(L, R.L);
+            if (nextValue.compareTo(R.value) <= 0) {
+                L = next;
+            } else {
+                L.R = R;
+                L = R;
+                R = next;
+            }
         }
 
-        N.checkChildren();
-        N.update();
+        repairSpine(depth);
 
-        return N;
+        return result;
     }
 
     /**
      * Merges two specified leftist heaps into one using the comparator.
+     * The merge walks down the right spines of both heaps top-down without recursion,
+     * each time linking the node with the lesser value, then repairs the visited nodes bottom-up.
      * @param L first leftist heap to be merged.
      * @param R second leftist heap to be merged.
      * @return new leftist heap which contains all the elements from two that were merged.
@@ -233,35 +562,230 @@ public class LeftistHeap<T> implements Heap<T> {
         if (L == null) return R;
         if (R == null) return L;
 
-        Node N = null;
+        if (comparator.compare(L.value, R.value) > 0) {
+            Node temp = L;
+            L = R;
+            R = temp;
+        }
+
+        Node result = L;
+        int depth = 0;
+
+        while (true) {
+            pushSpine(depth++, L);
 
-        T leftValue = (T) L.value;
-        T rightValue = (T) R.value;
+            Node next = L.R;
 
-        if (comparator.compare(leftValue, rightValue) <= 0) {
-            N = L;
-            N.R = mergeWithComparator(L.R, R);
-        } else {
-            N = R;
-            N.L = mergeWithComparator(L, R.L);
+            if (next == null) {
+                L.R = R;
+                break;
+            }
+
+            if (comparator.compare(next.value, R.value) <= 0) {
+                L = next;
+            } else {
+                L.R = R;
+                L = R;
+                R = next;
+            }
         }
 
-        N.checkChildren();
-        N.update();
+        repairSpine(depth);
+
+        return result;
+    }
+
+    /**
+     * Remembers the specified node as visited by the current merge.
+     * @param depth position of the node on the merged right spine.
+     * @param N node to be remembered.
+     */
+    private void pushSpine(int depth, Node N) {
+        if (depth == spine.length)
+            spine = Arrays.copyOf(spine, depth * 2);
+
+        spine[depth] = N;
+    }
+
+    /**
+     * Restores the leftist property of the nodes visited by the current merge,
+     * starting from the deepest one, and forgets them.
+     * @param depth number of the visited nodes.
+     */
+    private void repairSpine(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node N = (Node) spine[i];
+
+            N.checkChildren();
+            N.update();
+            N.adoptChildren();
+
+            spine[i] = null;
+        }
+    }
+
+    /**
+     * Restores the leftist property of the specified node and its ancestors
+     * after one of the children of the node was replaced.
+     * Stops as soon as the distance of a node does not change,
+     * because the ancestors above it are not affected then.
+     * @param N node whose child was replaced.
+     */
+    private void repairUp(Node N) {
+        while (N != null) {
+            int d = N.d;
+
+            N.checkChildren();
+            N.update();
+
+            if (N.d == d)
+                break;
+
+            N = N.P;
+        }
+    }
+
+    /**
+     * Checks that the specified handle refers to an element of this queue.
+     * @param handle handle to be checked.
+     * @return node referred by the handle.
+     * @throws IllegalArgumentException if the handle does not refer to an element of this queue.
+     */
+    private Node checkHandle(Handle<T> handle) {
+        if (!(handle instanceof LeftistHeap.Node))
+            throw new IllegalArgumentException("Handle does not refer to an element of this heap");
+
+        Node N = (Node) handle;
+        N.owner = N.owner.current();
+
+        if (N.d == 0 || !N.owner.isOwnedBy(this))
+            throw new IllegalArgumentException("Handle does not refer to an element of this heap");
 
         return N;
     }
 
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * A handle of an element stored in a leftist heap.
+     * Is returned by the <strong>insert</strong> operation and can be used
+     * to remove the element or to decrease its value.
+     * @param <T> type of the element.
+     */
+    public interface Handle<T> {
+        /**
+         * Returns the current value of the element.
+         * @return current value of the element.
+         */
+        T getValue();
+
+        /**
+         * Returns true only if the element is still stored in a heap.
+         * @return true if the element is still stored in a heap, false otherwise.
+         */
+        boolean isValid();
+    }
+
+    /**
+     * Intermediate result of the bulk collector.
+     * Keeps the elements that were not yet turned into a leftist heap
+     * and the leftist heap built from the rest of them.
+     * @param <T> type of the elements.
+     */
+    private static final class Batch<T> {
+        /**
+         * The comparator of the leftist heap being built.
+         */
+        private final Comparator<T> comparator;
+        /**
+         * Elements that were not yet turned into a leftist heap.
+         */
+        private final List<T> pending = new ArrayList<>();
+        /**
+         * Leftist heap built from the rest of the elements.
+         */
+        private final LeftistHeap<T> heap;
+
+        /**
+         * Creates an empty intermediate result.
+         * @param comparator the comparator of the leftist heap being built.
+         */
+        Batch(Comparator<T> comparator) {
+            this.comparator = comparator;
+            this.heap = new LeftistHeap<>(comparator);
+        }
+
+        /**
+         * Adds the specified element to the pending ones.
+         * @param value element to be added.
+         * @throws NullPointerException if the element is null.
+         */
+        void add(T value) {
+            if (value == null)
+                throw new NullPointerException();
+
+            pending.add(value);
+        }
+
+        /**
+         * Merges another intermediate result into this one.
+         * @param another intermediate result to be merged.
+         * @return this intermediate result.
+         */
+        Batch<T> combine(Batch<T> another) {
+            flush();
+            another.flush();
+            heap.mergeWith(another.heap);
+
+            return this;
+        }
+
+        /**
+         * Turns the pending elements into a leftist heap and returns the result.
+         * @return leftist heap that contains all the elements.
+         */
+        LeftistHeap<T> finish() {
+            flush();
+
+            return heap;
+        }
+
+        /**
+         * Builds a leftist heap from the pending elements in O(n) time
+         * and merges it into the leftist heap of this intermediate result.
+         */
+        private void flush() {
+            if (pending.isEmpty())
+                return;
+
+            heap.mergeWith(new LeftistHeap<>(pending, comparator));
+            pending.clear();
+        }
+    }
+
     /**
      * A node of this leftist heap.
      * Actually each node can be considered as a leftist heap.
+     * Also serves as a handle of the element stored in it.
      */
-    private final class Node extends Trees.Node<T> {
+    private final class Node extends Trees.Node<T> implements Handle<T> {
 
         /**
          * Value stored in this node.
          */
-        private final T value;
+        private T value;
         /**
          * Left child.
          */
@@ -270,9 +794,18 @@ public class LeftistHeap<T> implements Heap<T> {
          * Right child.
          */
         private Node R;
+        /**
+         * Parent or null if this node is a root.
+         */
+        private Node P;
+        /**
+         * Token of the heap that stores this node.
+         */
+        private Trees.Owner owner;
 
         /**
          * Distance from this node to the nearest absent child.
+         * Is zero if this node was removed from the heap.
          */
         private int d = 0;
 
@@ -285,6 +818,7 @@ public class LeftistHeap<T> implements Heap<T> {
             this.L = null;
             this.R = null;
             this.d = 1;
+            this.owner = LeftistHeap.this.owner;
         }
 
         /**
@@ -312,15 +846,42 @@ public class LeftistHeap<T> implements Heap<T> {
             d = Math.min(dL, dR) + 1;
         }
 
+        /**
+         * Makes this node the parent of its children.
+         */
+        void adoptChildren() {
+            if (L != null) L.P = this;
+            if (R != null) R.P = this;
+        }
+
+        /**
+         * Detaches this node from the heap.
+         */
+        void invalidate() {
+            L = null;
+            R = null;
+            P = null;
+            d = 0;
+        }
+
         /**
          * Returns the value stored.
          * @return value stored.
          */
         @Override
-        T getValue() {
+        public T getValue() {
             return value;
         }
 
+        /**
+         * Returns true only if the element is still stored in a heap.
+         * @return true if the element is still stored in a heap, false otherwise.
+         */
+        @Override
+        public boolean isValid() {
+            return d != 0 && owner.isOwned();
+        }
+
         /**
          * Returns left child.
          * @return left child.
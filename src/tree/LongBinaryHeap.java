@@ -0,0 +1,402 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a queue of primitive long keys.</p>
+ * <p>The implementation is based on a binary heap.</p>
+ * <p>Unlike a binary heap of boxed elements this queue stores the keys in a plain long array
+ * and compares them directly, so the primitive add/peek/poll operations never allocate.
+ * Each key can optionally be accompanied by an int payload (for example an index
+ * into an external array) which is stored in a parallel array.</p>
+ * <p>The keys are ordered in a natural (ascending) order.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/peek/poll operations.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ */
+public class LongBinaryHeap implements Heap<Long> {
+    /**
+     * List of the keys stored in this binary heap.
+     */
+    private long[] keys;
+    /**
+     * List of the payloads stored in this binary heap
+     * or null if this binary heap stores no payloads.
+     * The payload at some position belongs to the key at the same position.
+     */
+    private int[] payloads;
+    /**
+     * Size of this binary heap.
+     */
+    private int size = 0;
+
+    /**
+     * The default capacity of this binary heap.
+     * When a binary heap is created without the specified capacity
+     * it gets the default capacity.
+     */
+    private static final int DEFAULT_INITIAL_CAPACITY = 12;
+
+    /**
+     * Creates a binary heap with a default capacity
+     * and without payloads.
+     */
+    public LongBinaryHeap() {
+        this(DEFAULT_INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Creates a binary heap with the specified capacity
+     * and without payloads.
+     * @param initialCapacity capacity of the binary heap.
+     */
+    public LongBinaryHeap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Creates a binary heap with the specified capacity.
+     * @param initialCapacity capacity of the binary heap.
+     * @param withPayloads true if each key should be accompanied by an int payload.
+     */
+    public LongBinaryHeap(int initialCapacity, boolean withPayloads) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+
+        keys = new long[initialCapacity];
+        payloads = withPayloads ? new int[initialCapacity] : null;
+    }
+
+    /**
+     * Appends the specified key to the end of this queue.
+     * @param value key to be appended.
+     * @throws NullPointerException if the key is null.
+     */
+    @Override
+    public void add(Long value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        add(value.longValue());
+    }
+
+    /**
+     * Appends the specified key to the end of this queue.
+     * If this queue stores payloads the key gets zero payload.
+     * @param key key to be appended.
+     */
+    public void add(long key) {
+        if (size == keys.length)
+            increaseCapacity();
+
+        keys[size] = key;
+        if (payloads != null)
+            payloads[size] = 0;
+
+        siftUp(size++);
+    }
+
+    /**
+     * Appends the specified key with the specified payload to the end of this queue.
+     * @param key key to be appended.
+     * @param payload payload that accompanies the key.
+     * @throws IllegalStateException if this queue stores no payloads.
+     */
+    public void add(long key, int payload) {
+        if (payloads == null)
+            throw new IllegalStateException("This heap stores no payloads");
+
+        if (size == keys.length)
+            increaseCapacity();
+
+        keys[size] = key;
+        payloads[size] = payload;
+
+        siftUp(size++);
+    }
+
+    /**
+     * Returns the key at the beginning of the queue without removing it.
+     * @return key at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long peek() {
+        if (size == 0)
+            return null;
+
+        return keys[0];
+    }
+
+    /**
+     * Returns the key at the beginning of the queue removing it.
+     * @return key at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long poll() {
+        if (size == 0)
+            return null;
+
+        return pollLong();
+    }
+
+    /**
+     * Returns the key at the beginning of the queue without removing it.
+     * @return key at the beginning of the queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long peekLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return keys[0];
+    }
+
+    /**
+     * Returns the payload of the key at the beginning of the queue without removing it.
+     * @return payload of the key at the beginning of the queue.
+     * @throws NoSuchElementException if this queue is empty.
+     * @throws IllegalStateException if this queue stores no payloads.
+     */
+    public int peekPayload() {
+        if (payloads == null)
+            throw new IllegalStateException("This heap stores no payloads");
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return payloads[0];
+    }
+
+    /**
+     * Returns the key at the beginning of the queue removing it.
+     * The payload of the key is removed as well,
+     * so it should be read by <strong>peekPayload</strong> beforehand.
+     * @return key at the beginning of the queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long pollLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        long result = keys[0];
+
+        size--;
+        keys[0] = keys[size];
+        if (payloads != null)
+            payloads[0] = payloads[size];
+        siftDown(0);
+
+        return result;
+    }
+
+    /**
+     * Returns true if this queue stores payloads.
+     * @return true if this queue stores payloads, false otherwise.
+     */
+    public boolean hasPayloads() {
+        return payloads != null;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no keys.
+     * @return tree if this queue contains no keys, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the keys from this queue.
+     * This queue will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        keys = new long[DEFAULT_INITIAL_CAPACITY];
+        if (payloads != null)
+            payloads = new int[DEFAULT_INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the keys from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @return an array containing all the keys from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+
+        for (int i = 0; i < size; i++)
+            result[i] = keys[i];
+
+        return result;
+    }
+
+    /**
+     * Returns an array containing all if the keys from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @param a the array into which the keys from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the keys from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(result, size, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the keys in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(keys)
+                .limit(size)
+                .mapToObj(n -> String.valueOf(n))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the keys from this queue.
+     * @return an iterator over the keys from this queue.
+     */
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Long next() {
+                if (cursor < size) {
+                    return keys[cursor++];
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Increases the capacity of this binary heap.
+     * It will be called if during the add operation the program detects
+     * that there is no free space in the list to store keys.
+     */
+    private void increaseCapacity() {
+        int oldCapacity = keys.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1) + 1;
+
+        keys = Arrays.copyOf(keys, newCapacity);
+        if (payloads != null)
+            payloads = Arrays.copyOf(payloads, newCapacity);
+    }
+
+    /**
+     * Sifts down the key at the specified position.
+     * Instead of swapping the key on each level the children are moved up
+     * into the hole and the key is written once at its final position.
+     * @param i index of the key that will be sifted down.
+     */
+    private void siftDown(int i) {
+        long key = keys[i];
+        int payload = payloads == null ? 0 : payloads[i];
+
+        while (2 * i + 1 < size) {
+            int swapIndex = 2 * i + 1;
+            int rightChildIndex = swapIndex + 1;
+
+            if (rightChildIndex < size && keys[rightChildIndex] < keys[swapIndex])
+                swapIndex = rightChildIndex;
+
+            if (key <= keys[swapIndex])
+                break;
+
+            move(swapIndex, i);
+            i = swapIndex;
+        }
+
+        put(i, key, payload);
+    }
+
+    /**
+     * Sifts up the key at the specified position.
+     * Instead of swapping the key on each level the parents are moved down
+     * into the hole and the key is written once at its final position.
+     * @param i index of the key that will be sifted up.
+     */
+    private void siftUp(int i) {
+        long key = keys[i];
+        int payload = payloads == null ? 0 : payloads[i];
+
+        while (i > 0) {
+            int parentIndex = (i - 1) >> 1;
+
+            if (key >= keys[parentIndex])
+                break;
+
+            move(parentIndex, i);
+            i = parentIndex;
+        }
+
+        put(i, key, payload);
+    }
+
+    /**
+     * Moves the key and the payload from one position to another.
+     * @param from index of the key to be moved.
+     * @param to index at which the key will be stored.
+     */
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        if (payloads != null)
+            payloads[to] = payloads[from];
+    }
+
+    /**
+     * Stores the key and the payload at the specified position.
+     * @param i index at which the key will be stored.
+     * @param key key to be stored.
+     * @param payload payload to be stored, ignored if this binary heap stores no payloads.
+     */
+    private void put(int i, long key, int payload) {
+        keys[i] = key;
+        if (payloads != null)
+            payloads[i] = payload;
+    }
+}
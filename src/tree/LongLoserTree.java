@@ -0,0 +1,168 @@
+package tree;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * <p>This class is an implementation of an iterator that merges several sorted iterators of primitive long keys.</p>
+ * <p>The implementation is based on a loser tree (a tournament tree): a complete binary tree
+ * whose leaves are the sources and whose inner nodes keep the loser of the match played in them.
+ * After the winner is taken only the matches on the path from its leaf to the root are replayed,
+ * so each key costs exactly log(k) comparisons, where k is the number of sources.
+ * The keys are compared directly and never boxed.</p>
+ * <p>The sources must be sorted in a natural (ascending) order.</p>
+ * <p>This class offers O(log(k)) time performance on the nextLong operation.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ */
+public class LongLoserTree implements PrimitiveIterator.OfLong {
+    /**
+     * The sources to be merged.
+     */
+    private final PrimitiveIterator.OfLong[] sources;
+    /**
+     * Current head keys of the sources.
+     */
+    private final long[] heads;
+    /**
+     * Flags of the exhausted sources.
+     */
+    private final boolean[] exhausted;
+    /**
+     * Inner nodes of the tree: tree[0] is the index of the winner,
+     * tree[t] for t from 1 to k - 1 is the index of the loser of the match played in node t.
+     * The children of node t are 2t and 2t + 1, the leaf of source s is k + s.
+     */
+    private final int[] tree;
+    /**
+     * Number of the sources.
+     */
+    private final int k;
+
+    /**
+     * Creates an iterator that merges the specified sources.
+     * @param sources sorted iterators to be merged.
+     * @throws NullPointerException if any of the sources is null.
+     */
+    public LongLoserTree(List<? extends PrimitiveIterator.OfLong> sources) {
+        this.k = sources.size();
+        this.sources = sources.toArray(new PrimitiveIterator.OfLong[k]);
+        this.heads = new long[k];
+        this.exhausted = new boolean[k];
+        this.tree = new int[Math.max(k, 1)];
+
+        for (int s = 0; s < k; s++)
+            advance(s);
+
+        build();
+    }
+
+    /**
+     * Returns true if any of the sources has more keys.
+     * @return true if any of the sources has more keys, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        return k > 0 && !exhausted[tree[0]];
+    }
+
+    /**
+     * Returns the least of the head keys of the sources and advances its source.
+     * @return the least of the head keys of the sources.
+     * @throws NoSuchElementException if all the sources are exhausted.
+     */
+    @Override
+    public long nextLong() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int winner = tree[0];
+        long result = heads[winner];
+
+        advance(winner);
+        replay(winner);
+
+        return result;
+    }
+
+    /**
+     * Plays all the matches from the leaves to the root.
+     * The winners of the inner nodes are kept in a temporary array.
+     */
+    private void build() {
+        if (k <= 1)
+            return;
+
+        int[] winners = new int[k];
+
+        for (int t = k - 1; t > 0; t--) {
+            int a = winnerAt(2 * t, winners);
+            int b = winnerAt(2 * t + 1, winners);
+
+            if (beats(a, b)) {
+                winners[t] = a;
+                tree[t] = b;
+            } else {
+                winners[t] = b;
+                tree[t] = a;
+            }
+        }
+
+        tree[0] = winners[1];
+    }
+
+    /**
+     * Returns the winner of the specified node during the build.
+     * @param t index of the node.
+     * @param winners winners of the inner nodes.
+     * @return index of the source that wins in the node.
+     */
+    private int winnerAt(int t, int[] winners) {
+        return t >= k ? t - k : winners[t];
+    }
+
+    /**
+     * Replays the matches on the path from the leaf of the specified source to the root.
+     * In each node the current candidate plays against the stored loser and the winner goes up.
+     * @param s index of the source whose head key has changed.
+     */
+    private void replay(int s) {
+        for (int t = (s + k) >> 1; t > 0; t >>= 1) {
+            if (beats(tree[t], s)) {
+                int loser = s;
+                s = tree[t];
+                tree[t] = loser;
+            }
+        }
+
+        tree[0] = s;
+    }
+
+    /**
+     * Takes the next key of the specified source as its head key.
+     * @param s index of the source.
+     */
+    private void advance(int s) {
+        if (sources[s].hasNext())
+            heads[s] = sources[s].nextLong();
+        else
+            exhausted[s] = true;
+    }
+
+    /**
+     * Checks whether the first source wins against the second one.
+     * An exhausted source never wins, ties are won by the source with the lower index.
+     * @param a index of the first source.
+     * @param b index of the second source.
+     * @return true if the first source wins.
+     */
+    private boolean beats(int a, int b) {
+        if (exhausted[a])
+            return false;
+
+        if (exhausted[b])
+            return true;
+
+        return heads[a] < heads[b] || (heads[a] == heads[b] && a < b);
+    }
+}
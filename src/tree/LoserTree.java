@@ -0,0 +1,196 @@
+package tree;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>This class is an implementation of an iterator that merges several sorted iterators.</p>
+ * <p>The implementation is based on a loser tree (a tournament tree): a complete binary tree
+ * whose leaves are the sources and whose inner nodes keep the loser of the match played in them.
+ * The overall winner is the source with the least head element. After it is taken
+ * the winner's source is advanced and only the matches on the path from its leaf to the root
+ * are replayed, so each element costs exactly log(k) comparisons,
+ * where k is the number of sources.</p>
+ * <p>The sources must be sorted via the comparator or in a natural order
+ * and must not contain null. Equal elements are returned in the order of their sources.</p>
+ * <p>This class offers O(log(k)) time performance on the next operation.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of elements to be merged.
+ */
+public class LoserTree<T> implements Iterator<T> {
+    /**
+     * The sources to be merged.
+     */
+    private final Iterator<? extends T>[] sources;
+    /**
+     * Current head elements of the sources or null for the exhausted ones.
+     */
+    private final Object[] heads;
+    /**
+     * Inner nodes of the tree: tree[0] is the index of the winner,
+     * tree[t] for t from 1 to k - 1 is the index of the loser of the match played in node t.
+     * The children of node t are 2t and 2t + 1, the leaf of source s is k + s.
+     */
+    private final int[] tree;
+    /**
+     * Number of the sources.
+     */
+    private final int k;
+
+    /**
+     * The comparator or null if the elements are ordered in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates an iterator that merges the specified sources without any comparator.
+     * @param sources sorted iterators to be merged.
+     * @throws NullPointerException if any of the sources is null or returns null.
+     */
+    public LoserTree(List<? extends Iterator<? extends T>> sources) {
+        this(sources, null);
+    }
+
+    /**
+     * Creates an iterator that merges the specified sources with the specified comparator.
+     * @param sources sorted iterators to be merged.
+     * @param comparator comparator that was used to sort the sources.
+     * @throws NullPointerException if any of the sources is null or returns null.
+     */
+    public LoserTree(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+        this.k = sources.size();
+        this.sources = sources.toArray(new Iterator[k]);
+        this.heads = new Object[k];
+        this.tree = new int[Math.max(k, 1)];
+        this.comparator = comparator;
+
+        for (int s = 0; s < k; s++)
+            advance(s);
+
+        build();
+    }
+
+    /**
+     * Returns true if any of the sources has more elements.
+     * @return true if any of the sources has more elements, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        return k > 0 && heads[tree[0]] != null;
+    }
+
+    /**
+     * Returns the least of the head elements of the sources and advances its source.
+     * @return the least of the head elements of the sources.
+     * @throws NoSuchElementException if all the sources are exhausted.
+     */
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int winner = tree[0];
+        T result = (T) heads[winner];
+
+        advance(winner);
+        replay(winner);
+
+        return result;
+    }
+
+    /**
+     * Plays all the matches from the leaves to the root.
+     * The winners of the inner nodes are kept in a temporary array.
+     */
+    private void build() {
+        if (k <= 1)
+            return;
+
+        int[] winners = new int[k];
+
+        for (int t = k - 1; t > 0; t--) {
+            int a = winnerAt(2 * t, winners);
+            int b = winnerAt(2 * t + 1, winners);
+
+            if (beats(a, b)) {
+                winners[t] = a;
+                tree[t] = b;
+            } else {
+                winners[t] = b;
+                tree[t] = a;
+            }
+        }
+
+        tree[0] = winners[1];
+    }
+
+    /**
+     * Returns the winner of the specified node during the build.
+     * @param t index of the node.
+     * @param winners winners of the inner nodes.
+     * @return index of the source that wins in the node.
+     */
+    private int winnerAt(int t, int[] winners) {
+        return t >= k ? t - k : winners[t];
+    }
+
+    /**
+     * Replays the matches on the path from the leaf of the specified source to the root.
+     * In each node the current candidate plays against the stored loser and the winner goes up.
+     * @param s index of the source whose head element has changed.
+     */
+    private void replay(int s) {
+        for (int t = (s + k) >> 1; t > 0; t >>= 1) {
+            if (beats(tree[t], s)) {
+                int loser = s;
+                s = tree[t];
+                tree[t] = loser;
+            }
+        }
+
+        tree[0] = s;
+    }
+
+    /**
+     * Takes the next element of the specified source as its head element.
+     * @param s index of the source.
+     * @throws NullPointerException if the source returns null.
+     */
+    private void advance(int s) {
+        if (sources[s].hasNext()) {
+            T value = sources[s].next();
+
+            if (value == null)
+                throw new NullPointerException();
+
+            heads[s] = value;
+        } else {
+            heads[s] = null;
+        }
+    }
+
+    /**
+     * Checks whether the first source wins against the second one.
+     * An exhausted source never wins, ties are won by the source with the lower index.
+     * @param a index of the first source.
+     * @param b index of the second source.
+     * @return true if the first source wins.
+     */
+    private boolean beats(int a, int b) {
+        if (heads[a] == null)
+            return false;
+
+        if (heads[b] == null)
+            return true;
+
+        int result;
+        if (comparator == null)
+            result = ((Comparable<? super T>) heads[a]).compareTo((T) heads[b]);
+        else
+            result = comparator.compare((T) heads[a], (T) heads[b]);
+
+        return result < 0 || (result == 0 && a < b);
+    }
+}
@@ -0,0 +1,450 @@
+package tree;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a double-ended queue
+ * that allows to get both the least and the greatest element.</p>
+ * <p>The implementation is based on a min-max heap: a complete binary tree stored
+ * in one array whose levels alternately follow min and max order. Each element on an even
+ * (min) level is not greater than all its descendants and each element on an odd (max) level
+ * is not less than all its descendants. Thus the least element is the root
+ * and the greatest one is one of its children.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/peekMin/peekMax/pollMin/pollMax operations.
+ * The peek and poll operations of the heap interface work with the least element.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class MinMaxHeap<T> implements Heap<T> {
+    /**
+     * List of the elements stored in this min-max heap.
+     */
+    private Object[] list;
+    /**
+     * Size of this min-max heap.
+     */
+    private int size = 0;
+
+    /**
+     * The default capacity of this min-max heap.
+     * When a min-max heap is created without the specified capacity
+     * it gets the default capacity.
+     */
+    private static final int DEFAULT_INITIAL_CAPACITY = 12;
+    /**
+     * Comparator used to order the elements in this min-max heap
+     * or null if the elements are ordered in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a min-max heap with a default capacity
+     * and without any comparator.
+     */
+    public MinMaxHeap() {
+        this(DEFAULT_INITIAL_CAPACITY, null);
+    }
+
+    /**
+     * Creates a min-max heap with the specified capacity
+     * and without any comparator.
+     * @param initialCapacity capacity of the min-max heap.
+     */
+    public MinMaxHeap(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    /**
+     * Creates a min-max heap with the default capacity
+     * and with the specified comparator.
+     * @param comparator comparator that will be used to order the elements in this min-max heap.
+     */
+    public MinMaxHeap(Comparator<? super T> comparator) {
+        this(DEFAULT_INITIAL_CAPACITY, comparator);
+    }
+
+    /**
+     * Creates a min-max heap with the specified capacity
+     * and the specified comparator.
+     * @param initialCapacity capacity of the min-max heap.
+     * @param comparator comparator that will be used to order the elements in this min-max heap.
+     */
+    public MinMaxHeap(int initialCapacity, Comparator<? super T> comparator) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+
+        list = new Object[initialCapacity];
+        this.comparator = comparator;
+    }
+
+    /**
+     * Adds the specified element to this queue.
+     * @param value element to be added.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        if (size == list.length)
+            increaseCapacity();
+
+        list[size++] = value;
+
+        pushUp(size - 1);
+    }
+
+    /**
+     * Returns the least element of this queue without removing it.
+     * Is the same as <strong>peekMin</strong>.
+     * @return the least element of this queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        return peekMin();
+    }
+
+    /**
+     * Returns the least element of this queue removing it.
+     * Is the same as <strong>pollMin</strong>.
+     * @return the least element of this queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        return pollMin();
+    }
+
+    /**
+     * Returns the least element of this queue without removing it.
+     * @return the least element of this queue
+     * or null if this queue is empty.
+     */
+    public T peekMin() {
+        if (size == 0)
+            return null;
+
+        return (T) list[0];
+    }
+
+    /**
+     * Returns the greatest element of this queue without removing it.
+     * @return the greatest element of this queue
+     * or null if this queue is empty.
+     */
+    public T peekMax() {
+        if (size == 0)
+            return null;
+
+        return (T) list[maxIndex()];
+    }
+
+    /**
+     * Returns the least element of this queue removing it.
+     * @return the least element of this queue
+     * or null if this queue is empty.
+     */
+    public T pollMin() {
+        if (size == 0)
+            return null;
+
+        return removeAt(0);
+    }
+
+    /**
+     * Returns the greatest element of this queue removing it.
+     * @return the greatest element of this queue
+     * or null if this queue is empty.
+     */
+    public T pollMax() {
+        if (size == 0)
+            return null;
+
+        return removeAt(maxIndex());
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * This queue will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        list = new Object[DEFAULT_INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(list, size);
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(list, size, a.getClass());
+
+        System.arraycopy(list, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(list)
+                .limit(size)
+                .map(n -> String.valueOf(n))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public T next() {
+                if (cursor < size) {
+                    return (T) list[cursor++];
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Increases the capacity of this min-max heap.
+     * It will be called if during the add operation the program detects
+     * that there is no free space in the list to store elements.
+     */
+    private void increaseCapacity() {
+        int oldCapacity = list.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1) + 1;
+
+        list = Arrays.copyOf(list, newCapacity);
+    }
+
+    /**
+     * Returns the index of the greatest element.
+     * This min-max heap must not be empty.
+     * @return index of the greatest element.
+     */
+    private int maxIndex() {
+        if (size == 1)
+            return 0;
+
+        if (size == 2 || less(2, 1))
+            return 1;
+
+        return 2;
+    }
+
+    /**
+     * Removes the element at the specified position.
+     * The last element takes its place and is pushed down.
+     * @param i index of the element to be removed.
+     * @return element that was removed.
+     */
+    private T removeAt(int i) {
+        T result = (T) list[i];
+
+        list[i] = list[--size];
+        list[size] = null;
+
+        if (i < size)
+            pushDown(i);
+
+        return result;
+    }
+
+    /**
+     * Checks whether the specified position belongs to a min level.
+     * @param i index to be checked.
+     * @return true if the position belongs to a min level, false if it belongs to a max level.
+     */
+    private static boolean isMinLevel(int i) {
+        return ((31 - Integer.numberOfLeadingZeros(i + 1)) & 1) == 0;
+    }
+
+    /**
+     * Moves the element at the specified position up to its place.
+     * First decides whether the element belongs to min or max levels
+     * comparing it with its parent, then moves it up over its grandparents.
+     * @param i index of the element that will be pushed up.
+     */
+    private void pushUp(int i) {
+        if (i == 0)
+            return;
+
+        int parentIndex = (i - 1) >> 1;
+
+        if (isMinLevel(i)) {
+            if (less(parentIndex, i)) {
+                swap(i, parentIndex);
+                pushUp(parentIndex, false);
+            } else {
+                pushUp(i, true);
+            }
+        } else {
+            if (less(i, parentIndex)) {
+                swap(i, parentIndex);
+                pushUp(parentIndex, true);
+            } else {
+                pushUp(i, false);
+            }
+        }
+    }
+
+    /**
+     * Moves the element at the specified position up over its grandparents
+     * while it is less (on min levels) or greater (on max levels) than them.
+     * @param i index of the element that will be pushed up.
+     * @param min true if the element is on a min level.
+     */
+    private void pushUp(int i, boolean min) {
+        while (i > 2) {
+            int grandparentIndex = (((i - 1) >> 1) - 1) >> 1;
+
+            if (min ? !less(i, grandparentIndex) : !less(grandparentIndex, i))
+                break;
+
+            swap(i, grandparentIndex);
+            i = grandparentIndex;
+        }
+    }
+
+    /**
+     * Moves the element at the specified position down to its place.
+     * @param i index of the element that will be pushed down.
+     */
+    private void pushDown(int i) {
+        boolean min = isMinLevel(i);
+
+        while (2 * i + 1 < size) {
+            int m = extremeDescendant(i, min);
+
+            if (min ? !less(m, i) : !less(i, m))
+                break;
+
+            swap(m, i);
+
+            if (m <= 2 * i + 2)
+                break;
+
+            int parentIndex = (m - 1) >> 1;
+
+            if (min ? less(parentIndex, m) : less(m, parentIndex))
+                swap(m, parentIndex);
+
+            i = m;
+        }
+    }
+
+    /**
+     * Returns the index of the least (or the greatest) element
+     * among the children and the grandchildren of the specified element.
+     * The element must have at least one child.
+     * @param i index of the element.
+     * @param min true if the least element is searched, false if the greatest one.
+     * @return index of the least (or the greatest) child or grandchild.
+     */
+    private int extremeDescendant(int i, boolean min) {
+        int firstChildIndex = 2 * i + 1;
+        int result = firstChildIndex;
+
+        if (firstChildIndex + 1 < size && (min ? less(firstChildIndex + 1, result) : less(result, firstChildIndex + 1)))
+            result = firstChildIndex + 1;
+
+        int firstGrandchildIndex = 2 * firstChildIndex + 1;
+        int endGrandchildIndex = Math.min(firstGrandchildIndex + 4, size);
+
+        for (int j = firstGrandchildIndex; j < endGrandchildIndex; j++)
+            if (min ? less(j, result) : less(result, j))
+                result = j;
+
+        return result;
+    }
+
+    /**
+     * Compares the elements at the specified positions using the comparator or their natural order.
+     * @param i index of the first element.
+     * @param j index of the second element.
+     * @return true if the first element is less than the second one.
+     */
+    private boolean less(int i, int j) {
+        if (comparator == null)
+            return ((Comparable<? super T>) list[i]).compareTo((T) list[j]) < 0;
+        else
+            return comparator.compare((T) list[i], (T) list[j]) < 0;
+    }
+
+    /**
+     * swaps the values of two elements at specified positions.
+     * @param i index of the first element.
+     * @param j index of the second element.
+     */
+    private void swap(int i, int j) {
+        Object c = list[i];
+        list[i] = list[j];
+        list[j] = c;
+    }
+}
@@ -0,0 +1,384 @@
+package tree;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a relaxed concurrent queue.</p>
+ * <p>The implementation is based on a MultiQueue: the elements are distributed among
+ * c*P binary heaps (shards), where P is the expected number of threads and c is a small constant.
+ * Each shard is guarded by its own lock. The add operation and the sampling poll operation
+ * acquire it only with tryLock, so a thread that meets a busy shard simply picks another one
+ * instead of waiting. Only the fallback of the poll operation and the clear/toArray operations
+ * wait for the locks.
+ * An element is added to a random shard, and a poll operation samples two random shards
+ * and removes the top element of the better one.</p>
+ * <p>The order of the poll operations is relaxed: the polled element is not necessarily the
+ * least one in the queue. The expected rank of a polled element (the number of stored elements
+ * that are less than it) is O(c*P), and the probability of a larger rank decreases exponentially,
+ * so no element stays in the queue for long. With only one shard the queue is exact.
+ * The size of the queue is exact, and a poll operation returns null only if the queue is empty.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(n)) time performance on add/poll operations
+ * and O(c*P) time performance on the peek operation.</p>
+ * <p><strong>This implementation is thread-safe.</strong>
+ * The iterator and the toArray operations return a weakly consistent snapshot.</p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class MultiQueue<T> implements Heap<T> {
+    /**
+     * The default number of shards per thread.
+     * When a multiqueue is created without the specified number of shards per thread
+     * it gets the default number.
+     */
+    private static final int DEFAULT_SHARDS_PER_THREAD = 2;
+
+    /**
+     * Shards of this multiqueue.
+     */
+    private final Shard<T>[] shards;
+    /**
+     * Size of this multiqueue.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Comparator used to order the elements in this multiqueue
+     * or null if the elements are ordered in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a multiqueue for as many threads as there are available processors
+     * and without any comparator.
+     */
+    public MultiQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a multiqueue for the specified number of threads
+     * and without any comparator.
+     * @param threads expected number of threads that will share the multiqueue.
+     */
+    public MultiQueue(int threads) {
+        this(threads, DEFAULT_SHARDS_PER_THREAD, null);
+    }
+
+    /**
+     * Creates a multiqueue for the specified number of threads
+     * and with the specified comparator.
+     * @param threads expected number of threads that will share the multiqueue.
+     * @param comparator comparator that will be used to order the elements in this multiqueue.
+     */
+    public MultiQueue(int threads, Comparator<? super T> comparator) {
+        this(threads, DEFAULT_SHARDS_PER_THREAD, comparator);
+    }
+
+    /**
+     * Creates a multiqueue with the specified number of shards per thread
+     * and the specified comparator.
+     * @param threads expected number of threads that will share the multiqueue.
+     * @param shardsPerThread number of shards per thread.
+     * The greater it is the less the contention and the greater the rank error.
+     * @param comparator comparator that will be used to order the elements in this multiqueue.
+     * @throws IllegalArgumentException if any of the numbers is less than 1.
+     */
+    public MultiQueue(int threads, int shardsPerThread, Comparator<? super T> comparator) {
+        if (threads < 1 || shardsPerThread < 1)
+            throw new IllegalArgumentException();
+
+        shards = (Shard<T>[]) new Shard[threads * shardsPerThread];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new Shard<>(comparator);
+
+        this.comparator = comparator;
+    }
+
+    /**
+     * Adds the specified element to a random shard of this queue.
+     * @param value element to be added.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            Shard<T> shard = shards[random.nextInt(shards.length)];
+
+            if (shard.lock.tryLock()) {
+                try {
+                    shard.heap.add(value);
+                    shard.top = shard.heap.peek();
+                    size.incrementAndGet();
+                } finally {
+                    shard.lock.unlock();
+                }
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the least of the top elements of all shards without removing it.
+     * The result is only a snapshot as other threads may change this queue concurrently.
+     * @return the least of the top elements of all shards
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        return shards[bestShard()].top;
+    }
+
+    /**
+     * Returns an element close to the beginning of the queue removing it.
+     * Samples two random shards and polls the one whose top element is less.
+     * @return element close to the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int attempts = 0;
+
+        while (size.get() > 0) {
+            Shard<T> shard;
+
+            if (++attempts > shards.length) {
+                shard = shards[bestShard()];
+
+                shard.lock.lock();
+            } else {
+                Shard<T> first = shards[random.nextInt(shards.length)];
+                Shard<T> second = shards[random.nextInt(shards.length)];
+
+                shard = isBetter(second.top, first.top) ? second : first;
+
+                if (shard.top == null || !shard.lock.tryLock())
+                    continue;
+            }
+
+            try {
+                T result = shard.heap.poll();
+                shard.top = shard.heap.peek();
+
+                if (result != null) {
+                    size.decrementAndGet();
+                    return result;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of shards of this queue.
+     * @return number of shards of this queue.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * Elements added concurrently with this call may stay in the queue.
+     */
+    @Override
+    public void clear() {
+        for (Shard<T> shard : shards) {
+            shard.lock.lock();
+
+            try {
+                int removed = shard.heap.getSize();
+
+                shard.heap.clear();
+                shard.top = null;
+
+                size.addAndGet(-removed);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        List<Object> result = new ArrayList<>(size.get());
+
+        for (Shard<T> shard : shards) {
+            shard.lock.lock();
+
+            try {
+                result.addAll(Arrays.asList(shard.heap.toArray()));
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+
+        return result.toArray();
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < result.length)
+            return (T2[]) Arrays.copyOf(result, result.length, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, result.length);
+
+        if (a.length > result.length)
+            a[result.length] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(toArray())
+                .map(n -> String.valueOf(n))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Object[] snapshot = toArray();
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.length;
+            }
+
+            @Override
+            public T next() {
+                if (cursor < snapshot.length) {
+                    return (T) snapshot[cursor++];
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the index of the shard with the least top element.
+     * @return index of the shard with the least top element
+     * or of an empty shard if all the shards are empty.
+     */
+    private int bestShard() {
+        int best = 0;
+
+        for (int i = 1; i < shards.length; i++)
+            if (isBetter(shards[i].top, shards[best].top))
+                best = i;
+
+        return best;
+    }
+
+    /**
+     * Checks whether the first top element should be polled before the second one.
+     * A missing top element (of an empty shard) is never better than a present one.
+     * @param a first top element or null.
+     * @param b second top element or null.
+     * @return true if the first top element is present and less than the second one.
+     */
+    private boolean isBetter(T a, T b) {
+        if (a == null)
+            return false;
+
+        if (b == null)
+            return true;
+
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b) < 0;
+        else
+            return comparator.compare(a, b) < 0;
+    }
+
+    /**
+     * A shard of a multiqueue.
+     * @param <T> type of elements stored in the shard.
+     */
+    private static final class Shard<T> {
+        /**
+         * Binary heap that stores the elements of this shard.
+         */
+        private final BinaryHeap<T> heap;
+        /**
+         * Lock that guards the binary heap.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * Top element of the binary heap or null if it is empty.
+         * Is read without the lock to choose a shard to poll.
+         */
+        private volatile T top;
+
+        /**
+         * Creates a new empty shard.
+         * @param comparator comparator that will be used to order the elements in the shard.
+         */
+        Shard(Comparator<? super T> comparator) {
+            heap = new BinaryHeap<>(comparator);
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package tree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <p>This class is an implementation of a queue of fixed-width records stored outside of the Java heap.</p>
+ * <p>The implementation is based on a binary heap. Each record consists of a long key,
+ * by which the records are ordered in a natural (ascending) order, and a payload of a fixed number of bytes.
+ * The records are stored in direct byte buffers (pages), so neither the records nor the list
+ * of them are visible to the garbage collector. The queue grows by adding new pages,
+ * the records already stored are never copied.</p>
+ * <p>The queue can also be backed by a memory-mapped file. In this case its state
+ * is kept in the file and a restarted process can reopen the queue without rebuilding it.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/peek/poll operations.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ */
+public class OffHeapRecordHeap implements Heap<Long>, Closeable {
+    /**
+     * The number of bytes at the beginning of a file that are used to store the header.
+     */
+    private static final int HEADER_SIZE = 64;
+    /**
+     * The value that the header of a file starts with.
+     */
+    private static final int MAGIC = 0x48454150;
+    /**
+     * The position of the payload width in the header of a file.
+     */
+    private static final int HEADER_PAYLOAD_WIDTH = 4;
+    /**
+     * The position of the number of records per page in the header of a file.
+     */
+    private static final int HEADER_RECORDS_PER_PAGE = 8;
+    /**
+     * The position of the size in the header of a file.
+     */
+    private static final int HEADER_SIZE_FIELD = 16;
+    /**
+     * The maximum number of bytes in a page.
+     */
+    private static final int MAX_PAGE_BYTES = 1 << 22;
+    /**
+     * The number of bytes occupied by the key of a record.
+     */
+    private static final int KEY_WIDTH = 8;
+
+    /**
+     * Pages that store the records.
+     * Each page stores the same number of records.
+     */
+    private ByteBuffer[] pages = new ByteBuffer[0];
+    /**
+     * Buffer that stores one record while it is being sifted.
+     */
+    private final ByteBuffer scratch;
+    /**
+     * Header of the file that backs this heap or null if this heap is not backed by a file.
+     */
+    private final MappedByteBuffer header;
+    /**
+     * Channel of the file that backs this heap or null if this heap is not backed by a file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Number of bytes in the payload of each record.
+     */
+    private final int payloadWidth;
+    /**
+     * Number of bytes in each record.
+     */
+    private final int recordWidth;
+    /**
+     * Binary logarithm of the number of records per page.
+     */
+    private final int pageShift;
+    /**
+     * Size of this heap.
+     */
+    private int size = 0;
+
+    /**
+     * Creates a heap stored in direct memory.
+     * @param payloadWidth number of bytes in the payload of each record.
+     * @throws IllegalArgumentException if the payload width is negative or too big.
+     */
+    public OffHeapRecordHeap(int payloadWidth) {
+        this(payloadWidth, null, null);
+    }
+
+    /**
+     * Creates a heap.
+     * @param payloadWidth number of bytes in the payload of each record.
+     * @param channel channel of the file that backs the heap or null.
+     * @param header header of the file that backs the heap or null.
+     * @throws IllegalArgumentException if the payload width is negative or too big.
+     */
+    private OffHeapRecordHeap(int payloadWidth, FileChannel channel, MappedByteBuffer header) {
+        if (payloadWidth < 0 || payloadWidth > MAX_PAGE_BYTES - KEY_WIDTH)
+            throw new IllegalArgumentException();
+
+        this.payloadWidth = payloadWidth;
+        this.recordWidth = KEY_WIDTH + payloadWidth;
+        this.pageShift = 31 - Integer.numberOfLeadingZeros(MAX_PAGE_BYTES / recordWidth);
+        this.scratch = ByteBuffer.allocate(recordWidth).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        this.header = header;
+    }
+
+    /**
+     * Opens a heap backed by the specified memory-mapped file.
+     * If the file is empty or does not exist a new heap is created in it,
+     * otherwise the heap stored in the file is reopened as it was left.
+     * @param file file that backs the heap.
+     * @param payloadWidth number of bytes in the payload of each record.
+     * @return heap backed by the file.
+     * @throws IOException if the file could not be opened or does not contain a heap
+     * with the specified payload width.
+     * @throws IllegalArgumentException if the payload width is negative or too big.
+     */
+    public static OffHeapRecordHeap open(Path file, int payloadWidth) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            boolean isNew = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+
+            OffHeapRecordHeap heap = new OffHeapRecordHeap(payloadWidth, channel, header);
+
+            if (isNew) {
+                header.putInt(0, MAGIC);
+                header.putInt(HEADER_PAYLOAD_WIDTH, payloadWidth);
+                header.putInt(HEADER_RECORDS_PER_PAGE, 1 << heap.pageShift);
+                header.putLong(HEADER_SIZE_FIELD, 0);
+            } else {
+                if (header.getInt(0) != MAGIC
+                        || header.getInt(HEADER_PAYLOAD_WIDTH) != payloadWidth
+                        || header.getInt(HEADER_RECORDS_PER_PAGE) != 1 << heap.pageShift)
+                    throw new IOException("File does not contain a heap with payload width " + payloadWidth);
+
+                long storedSize = header.getLong(HEADER_SIZE_FIELD);
+
+                if (storedSize < 0 || storedSize > Integer.MAX_VALUE)
+                    throw new IOException("File contains a corrupted heap");
+
+                while (heap.getCapacity() < storedSize)
+                    heap.addPage();
+
+                heap.size = (int) storedSize;
+            }
+
+            return heap;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends the specified key with zero payload to the end of this queue.
+     * @param value key to be appended.
+     * @throws NullPointerException if the key is null.
+     */
+    @Override
+    public void add(Long value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        add(value.longValue());
+    }
+
+    /**
+     * Appends the specified key with zero payload to the end of this queue.
+     * @param key key to be appended.
+     */
+    public void add(long key) {
+        ByteBuffer page = prepareSlot(key);
+        int offset = offsetOf(size) + KEY_WIDTH;
+
+        for (int i = 0; i < payloadWidth; i++)
+            page.put(offset + i, (byte) 0);
+
+        siftUp(size++);
+        storeSize();
+    }
+
+    /**
+     * Appends the specified key with the specified payload to the end of this queue.
+     * @param key key to be appended.
+     * @param payload payload that accompanies the key, its length must be equal to the payload width.
+     * @throws IllegalArgumentException if the length of the payload is not equal to the payload width.
+     */
+    public void add(long key, byte[] payload) {
+        if (payload.length != payloadWidth)
+            throw new IllegalArgumentException("Payload length: " + payload.length + " width: " + payloadWidth);
+
+        ByteBuffer page = prepareSlot(key);
+        int offset = offsetOf(size) + KEY_WIDTH;
+
+        for (int i = 0; i < payloadWidth; i++)
+            page.put(offset + i, payload[i]);
+
+        siftUp(size++);
+        storeSize();
+    }
+
+    /**
+     * Returns the key at the beginning of the queue without removing it.
+     * @return key at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long peek() {
+        if (size == 0)
+            return null;
+
+        return keyAt(0);
+    }
+
+    /**
+     * Returns the key at the beginning of the queue removing it.
+     * @return key at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long poll() {
+        if (size == 0)
+            return null;
+
+        return pollLong();
+    }
+
+    /**
+     * Returns the key at the beginning of the queue without removing it.
+     * @return key at the beginning of the queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long peekLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return keyAt(0);
+    }
+
+    /**
+     * Copies the payload of the record at the beginning of the queue without removing it.
+     * @param dst array into which the payload is to be copied, its length must not be less
+     * than the payload width.
+     * @throws NoSuchElementException if this queue is empty.
+     * @throws IllegalArgumentException if the array is too small.
+     */
+    public void peekPayload(byte[] dst) {
+        if (dst.length < payloadWidth)
+            throw new IllegalArgumentException("Array length: " + dst.length + " width: " + payloadWidth);
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        ByteBuffer page = pages[0];
+
+        for (int i = 0; i < payloadWidth; i++)
+            dst[i] = page.get(KEY_WIDTH + i);
+    }
+
+    /**
+     * Returns the key at the beginning of the queue removing it.
+     * The payload of the record is removed as well,
+     * so it should be read by <strong>peekPayload</strong> beforehand.
+     * @return key at the beginning of the queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long pollLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        long result = keyAt(0);
+
+        size--;
+        copy(pageOf(size), offsetOf(size), pages[0], 0);
+        siftDown(0);
+        storeSize();
+
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes in the payload of each record.
+     * @return payload width.
+     */
+    public int getPayloadWidth() {
+        return payloadWidth;
+    }
+
+    /**
+     * Writes all the changes made to this queue to the file that backs it.
+     * Does nothing if this queue is not backed by a file.
+     */
+    public void force() {
+        if (header == null)
+            return;
+
+        for (ByteBuffer page : pages)
+            ((MappedByteBuffer) page).force();
+
+        header.force();
+    }
+
+    /**
+     * Writes all the changes made to this queue to the file that backs it and closes the file.
+     * This queue must not be used after this call.
+     * Does nothing if this queue is not backed by a file.
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null)
+            return;
+
+        force();
+        channel.close();
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no records.
+     * @return tree if this queue contains no records, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the records from this queue.
+     * This queue will be empty after this call returns.
+     * The pages are kept to be reused.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        storeSize();
+    }
+
+    /**
+     * Returns an array containing the keys of all the records from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @return an array containing the keys of all the records from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+
+        for (int i = 0; i < size; i++)
+            result[i] = keyAt(i);
+
+        return result;
+    }
+
+    /**
+     * Returns an array containing the keys of all the records from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @param a the array into which the keys from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing the keys of all the records from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(result, size, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of the keys of this queue.
+     * The order of the keys in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return IntStream.range(0, size)
+                .mapToObj(i -> String.valueOf(keyAt(i)))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the keys of the records from this queue.
+     * @return an iterator over the keys of the records from this queue.
+     */
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Long next() {
+                if (cursor < size) {
+                    return keyAt(cursor++);
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Makes sure there is a free slot at the end of this heap and stores the specified key in it.
+     * @param key key to be stored.
+     * @return page that contains the slot.
+     */
+    private ByteBuffer prepareSlot(long key) {
+        if (size == Integer.MAX_VALUE)
+            throw new IllegalStateException("Heap is full");
+
+        if (size == getCapacity())
+            addPage();
+
+        ByteBuffer page = pageOf(size);
+        page.putLong(offsetOf(size), key);
+
+        return page;
+    }
+
+    /**
+     * Returns the number of records that fit into the pages of this heap.
+     * @return capacity of this heap.
+     */
+    private long getCapacity() {
+        return (long) pages.length << pageShift;
+    }
+
+    /**
+     * Adds a new page to this heap.
+     * The page is either allocated in direct memory or mapped from the next region of the file.
+     */
+    private void addPage() {
+        int pageBytes = recordWidth << pageShift;
+        ByteBuffer page;
+
+        if (channel == null) {
+            page = ByteBuffer.allocateDirect(pageBytes);
+        } else {
+            long position = HEADER_SIZE + (long) pages.length * pageBytes;
+
+            try {
+                page = channel.map(FileChannel.MapMode.READ_WRITE, position, pageBytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not map a new page", e);
+            }
+        }
+
+        page.order(ByteOrder.LITTLE_ENDIAN);
+
+        pages = Arrays.copyOf(pages, pages.length + 1);
+        pages[pages.length - 1] = page;
+    }
+
+    /**
+     * Writes the size of this heap into the header of the file.
+     * Does nothing if this heap is not backed by a file.
+     */
+    private void storeSize() {
+        if (header != null)
+            header.putLong(HEADER_SIZE_FIELD, size);
+    }
+
+    /**
+     * Returns the page that contains the record at the specified position.
+     * @param i index of the record.
+     * @return page that contains the record.
+     */
+    private ByteBuffer pageOf(int i) {
+        return pages[i >>> pageShift];
+    }
+
+    /**
+     * Returns the offset of the record at the specified position within its page.
+     * @param i index of the record.
+     * @return offset of the record within its page.
+     */
+    private int offsetOf(int i) {
+        return (i & ((1 << pageShift) - 1)) * recordWidth;
+    }
+
+    /**
+     * Returns the key of the record at the specified position.
+     * @param i index of the record.
+     * @return key of the record.
+     */
+    private long keyAt(int i) {
+        return pageOf(i).getLong(offsetOf(i));
+    }
+
+    /**
+     * Sifts down the record at the specified position.
+     * The record is kept in the scratch buffer while the children are moved up
+     * into the hole, then it is written once at its final position.
+     * @param i index of the record that will be sifted down.
+     */
+    private void siftDown(int i) {
+        copy(pageOf(i), offsetOf(i), scratch, 0);
+        long key = scratch.getLong(0);
+
+        while (2 * i + 1 < size) {
+            int swapIndex = 2 * i + 1;
+            int rightChildIndex = swapIndex + 1;
+            long swapKey = keyAt(swapIndex);
+
+            if (rightChildIndex < size) {
+                long rightKey = keyAt(rightChildIndex);
+
+                if (rightKey < swapKey) {
+                    swapIndex = rightChildIndex;
+                    swapKey = rightKey;
+                }
+            }
+
+            if (key <= swapKey)
+                break;
+
+            copy(pageOf(swapIndex), offsetOf(swapIndex), pageOf(i), offsetOf(i));
+            i = swapIndex;
+        }
+
+        copy(scratch, 0, pageOf(i), offsetOf(i));
+    }
+
+    /**
+     * Sifts up the record at the specified position.
+     * The record is kept in the scratch buffer while the parents are moved down
+     * into the hole, then it is written once at its final position.
+     * @param i index of the record that will be sifted up.
+     */
+    private void siftUp(int i) {
+        copy(pageOf(i), offsetOf(i), scratch, 0);
+        long key = scratch.getLong(0);
+
+        while (i > 0) {
+            int parentIndex = (i - 1) >> 1;
+
+            if (key >= keyAt(parentIndex))
+                break;
+
+            copy(pageOf(parentIndex), offsetOf(parentIndex), pageOf(i), offsetOf(i));
+            i = parentIndex;
+        }
+
+        copy(scratch, 0, pageOf(i), offsetOf(i));
+    }
+
+    /**
+     * Copies one record from one buffer to another.
+     * @param src buffer that contains the record.
+     * @param srcOffset offset of the record in the source buffer.
+     * @param dst buffer into which the record is to be copied.
+     * @param dstOffset offset in the destination buffer.
+     */
+    private void copy(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset) {
+        int i = 0;
+
+        for (; i + 8 <= recordWidth; i += 8)
+            dst.putLong(dstOffset + i, src.getLong(srcOffset + i));
+
+        for (; i < recordWidth; i++)
+            dst.put(dstOffset + i, src.get(srcOffset + i));
+    }
+}
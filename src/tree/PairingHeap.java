@@ -0,0 +1,506 @@
+package tree;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a queue that allows to change
+ * the priority of the elements already stored in it.</p>
+ * <p>The implementation is based on a pairing heap: a heap-ordered multiway tree
+ * stored as nodes that refer to their first child and their next sibling.
+ * Two pairing heaps are melded by one comparison, the children of a removed root
+ * are combined back by two passes of pairwise linking. Both passes are iterative,
+ * so even a root with millions of children does not overflow the stack.</p>
+ * <p>Each stored element is wrapped into a handle that is returned by the
+ * <strong>insert</strong> operation and can be used to decrease its value or to remove it.
+ * A handle is only accepted by the heap that currently stores its element.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers O(1) time performance on add/peek/meld operations,
+ * an amortized O(log(n)) time performance on poll/remove operations
+ * and an amortized sub-logarithmic time performance on the decreaseKey operation.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class PairingHeap<T> implements Heap<T> {
+    /**
+     * The root of this pairing heap.
+     */
+    private Handle<T> root;
+    /**
+     * The number of elements in this pairing heap.
+     */
+    private int size;
+    /**
+     * Token of the nodes of this pairing heap.
+     * Tells whether a handle refers to an element of this pairing heap.
+     */
+    private Trees.Owner owner = new Trees.Owner(this);
+
+    /**
+     * The comparator or null if this pairing heap orders the elements in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a pairing heap without any comparator.
+     */
+    public PairingHeap() {
+        this(null);
+    }
+
+    /**
+     * Creates a pairing heap with the specified comparator.
+     * @param comparator the comparator that will be used to order the elements in this pairing heap.
+     */
+    public PairingHeap(Comparator<? super T> comparator) {
+        this.root = null;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Appends the specified element to the end of this queue.
+     * @param value element to be appended.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        insert(value);
+    }
+
+    /**
+     * Appends the specified element to the end of this queue
+     * and returns the handle that refers to it.
+     * @param value element to be appended.
+     * @return handle that refers to the appended element.
+     * @throws NullPointerException if the element is null.
+     */
+    public Handle<T> insert(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        Handle<T> N = new Handle<>(value, owner);
+
+        root = link(root, N);
+        size++;
+
+        return N;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue without removing it.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        if (size == 0)
+            return null;
+
+        return root.value;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue removing it.
+     * The handle of the element becomes invalid.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        if (size == 0)
+            return null;
+
+        Handle<T> N = root;
+
+        root = combineSiblings(N.child);
+        size--;
+
+        N.invalidate();
+
+        return N.value;
+    }
+
+    /**
+     * Moves all the elements from another pairing heap into this one.
+     * The other pairing heap will be empty after this call returns,
+     * the handles of its elements stay valid and now refer to the elements of this pairing heap.
+     * @param anotherHeap specified pairing heap.
+     * @throws NullPointerException if the specified pairing heap is null.
+     * @throws IllegalArgumentException if the specified pairing heap is this one.
+     */
+    public void meld(PairingHeap<T> anotherHeap) {
+        if (anotherHeap == null)
+            throw new NullPointerException();
+
+        if (anotherHeap == this)
+            throw new IllegalArgumentException();
+
+        root = link(root, anotherHeap.root);
+        size += anotherHeap.size;
+
+        anotherHeap.owner.forwardTo(owner);
+        anotherHeap.owner = new Trees.Owner(anotherHeap);
+        anotherHeap.root = null;
+        anotherHeap.size = 0;
+    }
+
+    /**
+     * Replaces the value of the element referred by the specified handle
+     * with a value that is not greater than the current one.
+     * The handle must refer to an element of this queue.
+     * @param handle handle of the element whose value is to be decreased.
+     * @param value new value of the element.
+     * @throws NullPointerException if the value is null.
+     * @throws IllegalArgumentException if the handle is invalid
+     * or the new value is greater than the current one.
+     */
+    public void decreaseKey(Handle<T> handle, T value) {
+        checkHandle(handle);
+
+        if (value == null)
+            throw new NullPointerException();
+
+        if (compare(value, handle.value) > 0)
+            throw new IllegalArgumentException("New value is greater than the current one");
+
+        handle.value = value;
+
+        if (handle != root) {
+            cut(handle);
+            root = link(root, handle);
+        }
+    }
+
+    /**
+     * Removes the element referred by the specified handle from this queue.
+     * The handle must refer to an element of this queue, it becomes invalid.
+     * @param handle handle of the element to be removed.
+     * @throws IllegalArgumentException if the handle is invalid.
+     */
+    public void remove(Handle<T> handle) {
+        checkHandle(handle);
+
+        if (handle == root) {
+            poll();
+            return;
+        }
+
+        cut(handle);
+        root = link(root, combineSiblings(handle.child));
+        size--;
+
+        handle.invalidate();
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return the size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * This queue will be empty after this call returns
+     * and all the handles of the removed elements become invalid.
+     */
+    @Override
+    public void clear() {
+        owner.release();
+        owner = new Trees.Owner(this);
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+
+        if (root == null)
+            return result;
+
+        Deque<Handle<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        int cursor = 0;
+
+        while (!stack.isEmpty()) {
+            Handle<T> N = stack.pop();
+            result[cursor++] = N.value;
+
+            if (N.next != null)
+                stack.push(N.next);
+            if (N.child != null)
+                stack.push(N.child);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(result, size, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(toArray())
+                .map(n -> String.valueOf(n))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Object[] elements = toArray();
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < elements.length;
+            }
+
+            @Override
+            public T next() {
+                if (cursor < elements.length) {
+                    return (T) elements[cursor++];
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Links two specified pairing heaps: the root with the greater value
+     * becomes the first child of the other one.
+     * @param A first pairing heap to be linked, its root must have no siblings.
+     * @param B second pairing heap to be linked, its root must have no siblings.
+     * @return new pairing heap which contains all the elements from two that were linked.
+     */
+    private Handle<T> link(Handle<T> A, Handle<T> B) {
+        if (A == null) return B;
+        if (B == null) return A;
+
+        if (compare(B.value, A.value) < 0) {
+            Handle<T> temp = A;
+            A = B;
+            B = temp;
+        }
+
+        B.next = A.child;
+        if (A.child != null)
+            A.child.prev = B;
+        B.prev = A;
+        A.child = B;
+
+        return A;
+    }
+
+    /**
+     * Combines the list of siblings starting with the specified node into one pairing heap.
+     * The first pass links the siblings in pairs from left to right and pushes the results
+     * onto a stack made of their next pointers, the second pass pops and links them from right to left.
+     * @param first first sibling in the list or null.
+     * @return pairing heap which contains all the elements from the siblings.
+     */
+    private Handle<T> combineSiblings(Handle<T> first) {
+        Handle<T> stack = null;
+
+        while (first != null) {
+            Handle<T> A = first;
+            Handle<T> B = A.next;
+
+            if (B == null) {
+                first = null;
+            } else {
+                first = B.next;
+                B.next = null;
+                B.prev = null;
+            }
+
+            A.next = null;
+            A.prev = null;
+
+            Handle<T> pair = link(A, B);
+            pair.next = stack;
+            stack = pair;
+        }
+
+        if (stack == null)
+            return null;
+
+        Handle<T> result = stack;
+        stack = stack.next;
+        result.next = null;
+
+        while (stack != null) {
+            Handle<T> N = stack;
+            stack = stack.next;
+            N.next = null;
+
+            result = link(result, N);
+        }
+
+        return result;
+    }
+
+    /**
+     * Cuts the specified node with all its descendants out of the list of its siblings.
+     * The node must not be the root.
+     * @param N node to be cut.
+     */
+    private void cut(Handle<T> N) {
+        if (N.prev.child == N)
+            N.prev.child = N.next;
+        else
+            N.prev.next = N.next;
+
+        if (N.next != null)
+            N.next.prev = N.prev;
+
+        N.prev = null;
+        N.next = null;
+    }
+
+    /**
+     * Checks that the specified handle refers to an element of this queue.
+     * @param handle handle to be checked.
+     * @throws IllegalArgumentException if the handle does not refer to an element of this queue.
+     */
+    private void checkHandle(Handle<T> handle) {
+        if (handle == null)
+            throw new IllegalArgumentException("Handle does not refer to an element of this heap");
+
+        handle.owner = handle.owner.current();
+
+        if (handle.next == handle || !handle.owner.isOwnedBy(this))
+            throw new IllegalArgumentException("Handle does not refer to an element of this heap");
+    }
+
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * A node of a pairing heap that also serves as a handle of the element stored in it.
+     * Actually each node can be considered as a pairing heap.
+     * @param <T> type of the element stored in the node.
+     */
+    public static final class Handle<T> {
+        /**
+         * Value stored in this node.
+         */
+        private T value;
+        /**
+         * First child.
+         */
+        private Handle<T> child;
+        /**
+         * Next sibling.
+         * Refers to this node itself if the node was removed from the heap.
+         */
+        private Handle<T> next;
+        /**
+         * Previous sibling or the parent if this node is the first child.
+         */
+        private Handle<T> prev;
+        /**
+         * Token of the heap that stores this node.
+         */
+        private Trees.Owner owner;
+
+        /**
+         * Creates a new node with the specified value.
+         * @param value value to be stored in the node.
+         * @param owner token of the heap that stores the node.
+         */
+        private Handle(T value, Trees.Owner owner) {
+            this.value = value;
+            this.owner = owner;
+        }
+
+        /**
+         * Returns the current value of the element.
+         * @return current value of the element.
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns true only if the element is still stored in a heap.
+         * @return true if the element is still stored in a heap, false otherwise.
+         */
+        public boolean isValid() {
+            return next != this && owner.isOwned();
+        }
+
+        /**
+         * Detaches this node from the heap.
+         */
+        private void invalidate() {
+            child = null;
+            prev = null;
+            next = this;
+        }
+    }
+}
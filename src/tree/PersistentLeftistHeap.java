@@ -0,0 +1,311 @@
+package tree;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * <p>This class is an implementation of an immutable (persistent) queue.</p>
+ * <p>The implementation is based on a leftist heap whose nodes are never modified.
+ * The add/poll/meld operations do not change the queue they are called on, instead they
+ * return a new version of it. The new version copies only the nodes on the merge path
+ * (O(log(n)) of them) and shares all the other nodes with the old version.
+ * Thus a snapshot of a queue is the queue itself and costs O(1),
+ * and any number of versions forked from one state can be used independently.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on add/poll/meld operations and O(1) time performance on the peek operation.</p>
+ * <p><strong>This implementation is thread-safe:</strong> all its fields are final,
+ * so any version can be read by any number of threads without locking.</p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public final class PersistentLeftistHeap<T> implements Iterable<T> {
+    /**
+     * The root of this leftist heap.
+     */
+    private final Node<T> root;
+    /**
+     * The number of elements in this leftist heap.
+     */
+    private final int size;
+
+    /**
+     * The comparator or null if this leftist heap orders the elements in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a leftist heap.
+     * @param root root of the leftist heap.
+     * @param size number of elements in the leftist heap.
+     * @param comparator the comparator that will be used to order the elements in the leftist heap.
+     */
+    private PersistentLeftistHeap(Node<T> root, int size, Comparator<? super T> comparator) {
+        this.root = root;
+        this.size = size;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Returns an empty leftist heap without any comparator.
+     * @param <T> type of element to be stored in the leftist heap.
+     * @return an empty leftist heap.
+     */
+    public static <T> PersistentLeftistHeap<T> empty() {
+        return new PersistentLeftistHeap<>(null, 0, null);
+    }
+
+    /**
+     * Returns an empty leftist heap with the specified comparator.
+     * @param comparator the comparator that will be used to order the elements in the leftist heap.
+     * @param <T> type of element to be stored in the leftist heap.
+     * @return an empty leftist heap.
+     */
+    public static <T> PersistentLeftistHeap<T> empty(Comparator<? super T> comparator) {
+        return new PersistentLeftistHeap<>(null, 0, comparator);
+    }
+
+    /**
+     * Returns a new version of this queue with the specified element added.
+     * This queue is not changed.
+     * @param value element to be added.
+     * @return a new version of this queue that contains the element.
+     * @throws NullPointerException if the element is null.
+     */
+    public PersistentLeftistHeap<T> add(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        return new PersistentLeftistHeap<>(merge(root, new Node<>(value, null, null, 1)), size + 1, comparator);
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    public T peek() {
+        if (size == 0)
+            return null;
+
+        return root.value;
+    }
+
+    /**
+     * Returns a new version of this queue without the element at its beginning.
+     * This queue is not changed.
+     * @return a new version of this queue without the element at its beginning
+     * or this queue itself if it is empty.
+     */
+    public PersistentLeftistHeap<T> poll() {
+        if (size == 0)
+            return this;
+
+        return new PersistentLeftistHeap<>(merge(root.L, root.R), size - 1, comparator);
+    }
+
+    /**
+     * Returns a new version of this queue that contains the elements of both this
+     * and the specified queue. Neither of the queues is changed.
+     * The specified queue must order its elements the same way as this queue.
+     * @param anotherHeap specified queue.
+     * @return a new queue that contains the elements of both queues.
+     * @throws NullPointerException if the specified queue is null.
+     */
+    public PersistentLeftistHeap<T> meld(PersistentLeftistHeap<T> anotherHeap) {
+        if (anotherHeap == null)
+            throw new NullPointerException();
+
+        return new PersistentLeftistHeap<>(merge(root, anotherHeap.root), size + anotherHeap.size, comparator);
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return the size of this queue.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    public Object[] toArray() {
+        return Trees.<T>toArray(root, size);
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @param <T2> type of the array elements.
+     * @return an array containing all of the elements from this queue.
+     */
+    public <T2> T2[] toArray(T2[] a) {
+        return Trees.<T2>toArray(a, root, size);
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Trees.<T>toString(root, size);
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return Trees.<T>getIterator(root, size);
+    }
+
+    /**
+     * Merges two specified leftist heaps into a new one by path copying.
+     * First walks down the right spines choosing the node with the lesser value each time,
+     * then creates copies of the chosen nodes bottom-up. The copies keep the left children
+     * of the originals, all the other nodes are shared.
+     * @param A first leftist heap to be merged.
+     * @param B second leftist heap to be merged.
+     * @return new leftist heap which contains all the elements from two that were merged.
+     */
+    private Node<T> merge(Node<T> A, Node<T> B) {
+        if (A == null) return B;
+        if (B == null) return A;
+
+        Node<T>[] path = (Node<T>[]) new Node[A.d + B.d];
+        int depth = 0;
+
+        while (A != null && B != null) {
+            if (compare(A.value, B.value) > 0) {
+                Node<T> temp = A;
+                A = B;
+                B = temp;
+            }
+
+            path[depth++] = A;
+            A = A.R;
+        }
+
+        Node<T> result = A != null ? A : B;
+
+        for (int i = depth - 1; i >= 0; i--)
+            result = Node.make(path[i].value, path[i].L, result);
+
+        return result;
+    }
+
+    /**
+     * Compares two elements using the comparator or their natural order.
+     * @param a first element to be compared.
+     * @param b second element to be compared.
+     * @return a negative number, zero or a positive number as the first element
+     * is less than, equal to, or greater than the second.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null)
+            return ((Comparable<? super T>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * An immutable node of a persistent leftist heap.
+     * Actually each node can be considered as a leftist heap.
+     * @param <T> type of the element stored in the node.
+     */
+    private static final class Node<T> extends Trees.Node<T> {
+        /**
+         * Value stored in this node.
+         */
+        private final T value;
+        /**
+         * Left child.
+         */
+        private final Node<T> L;
+        /**
+         * Right child.
+         */
+        private final Node<T> R;
+        /**
+         * Distance from this node to the nearest absent child.
+         */
+        private final int d;
+
+        /**
+         * Creates a new node.
+         * @param value value to be stored in the node.
+         * @param L left child.
+         * @param R right child.
+         * @param d distance from the node to the nearest absent child.
+         */
+        Node(T value, Node<T> L, Node<T> R, int d) {
+            this.value = value;
+            this.L = L;
+            this.R = R;
+            this.d = d;
+        }
+
+        /**
+         * Creates a new node with the specified children placing the one
+         * with the lesser distance to the right.
+         * @param value value to be stored in the node.
+         * @param A first child.
+         * @param B second child.
+         * @param <T> type of the element stored in the node.
+         * @return new node.
+         */
+        static <T> Node<T> make(T value, Node<T> A, Node<T> B) {
+            int dA = A == null ? 0 : A.d;
+            int dB = B == null ? 0 : B.d;
+
+            if (dA >= dB)
+                return new Node<>(value, A, B, dB + 1);
+            else
+                return new Node<>(value, B, A, dA + 1);
+        }
+
+        /**
+         * Returns the value stored.
+         * @return value stored.
+         */
+        @Override
+        T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns left child.
+         * @return left child.
+         */
+        @Override
+        Node<T> getL() {
+            return L;
+        }
+
+        /**
+         * Returns right child.
+         * @return right child.
+         */
+        @Override
+        Node<T> getR() {
+            return R;
+        }
+    }
+}
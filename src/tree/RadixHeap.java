@@ -0,0 +1,377 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This class is an implementation of a monotone queue of primitive long keys.</p>
+ * <p>The implementation is based on a radix heap. The keys are distributed among 65 buckets
+ * by the highest bit in which they differ from the last polled key, so the keys are never
+ * compared with each other except when the least key of a bucket is searched.
+ * The queue is monotone: a key that is less than the last polled key can not be added.
+ * This restriction holds, for example, for event simulations and Dijkstra's algorithm.</p>
+ * <p>The bucket arrays are never shrunk or reallocated after they have grown,
+ * so the primitive add/peek/poll operations do not allocate in a steady state.</p>
+ * <p>This class offers an amortized O(log(C)) time performance on add/peek/poll operations,
+ * where C is the difference between the greatest stored key and the last polled key.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ */
+public class RadixHeap implements Heap<Long> {
+    /**
+     * The number of buckets.
+     * Bucket 0 holds the keys equal to the last polled key,
+     * bucket i holds the keys whose highest bit that differs from it is i - 1.
+     */
+    private static final int BUCKET_COUNT = 65;
+    /**
+     * The default capacity of a bucket.
+     * A bucket gets the default capacity when the first key is added into it.
+     */
+    private static final int DEFAULT_BUCKET_CAPACITY = 4;
+
+    /**
+     * Lists of the keys stored in the buckets.
+     */
+    private final long[][] buckets = new long[BUCKET_COUNT][];
+    /**
+     * Sizes of the buckets.
+     */
+    private final int[] bucketSizes = new int[BUCKET_COUNT];
+    /**
+     * The last polled key or the least possible key if nothing was polled.
+     */
+    private long last = Long.MIN_VALUE;
+    /**
+     * The least key of the first non-empty bucket found by the last peek.
+     * Is only meaningful while bucket 0 is empty and leastKnown is true.
+     */
+    private long least;
+    /**
+     * True if the least key found by the last peek is still the least key of this radix heap.
+     */
+    private boolean leastKnown = false;
+    /**
+     * Size of this radix heap.
+     */
+    private int size = 0;
+
+    /**
+     * Creates an empty radix heap.
+     */
+    public RadixHeap() {
+    }
+
+    /**
+     * Adds the specified key to this queue.
+     * @param value key to be added.
+     * @throws NullPointerException if the key is null.
+     * @throws IllegalArgumentException if the key is less than the last polled key.
+     */
+    @Override
+    public void add(Long value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        add(value.longValue());
+    }
+
+    /**
+     * Adds the specified key to this queue.
+     * @param key key to be added.
+     * @throws IllegalArgumentException if the key is less than the last polled key.
+     */
+    public void add(long key) {
+        if (key < last)
+            throw new IllegalArgumentException("Key: " + key + " is less than the last polled key: " + last);
+
+        put(bucketOf(key), key);
+        size++;
+
+        if (leastKnown && key < least)
+            least = key;
+    }
+
+    /**
+     * Returns the least key of this queue without removing it.
+     * @return the least key of this queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long peek() {
+        if (size == 0)
+            return null;
+
+        return peekLong();
+    }
+
+    /**
+     * Returns the least key of this queue removing it.
+     * @return the least key of this queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public Long poll() {
+        if (size == 0)
+            return null;
+
+        return pollLong();
+    }
+
+    /**
+     * Returns the least key of this queue without removing it.
+     * The keys are not redistributed, so a peek does not change the last polled key.
+     * If bucket 0 is empty the least key of the first non-empty bucket is searched
+     * and remembered until the next poll.
+     * @return the least key of this queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long peekLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        if (bucketSizes[0] > 0)
+            return last;
+
+        if (!leastKnown) {
+            least = leastOf(firstNonEmptyBucket());
+            leastKnown = true;
+        }
+
+        return least;
+    }
+
+    /**
+     * Returns the least key of this queue removing it.
+     * After this call no key less than the returned one can be added.
+     * @return the least key of this queue.
+     * @throws NoSuchElementException if this queue is empty.
+     */
+    public long pollLong() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        redistribute();
+
+        bucketSizes[0]--;
+        size--;
+        leastKnown = false;
+
+        return last;
+    }
+
+    /**
+     * Returns the last polled key.
+     * No key less than it can be added to this queue.
+     * @return the last polled key or Long.MIN_VALUE if nothing was polled.
+     */
+    public long getLastPolled() {
+        return last;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no keys.
+     * @return tree if this queue contains no keys, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the keys from this queue.
+     * This queue will be empty after this call returns and will accept any keys again.
+     * The bucket arrays are kept to be reused.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(bucketSizes, 0);
+        last = Long.MIN_VALUE;
+        leastKnown = false;
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the keys from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @return an array containing all the keys from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        int cursor = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            for (int j = 0; j < bucketSizes[i]; j++)
+                result[cursor++] = buckets[i][j];
+
+        return result;
+    }
+
+    /**
+     * Returns an array containing all if the keys from this queue.
+     * The order of the keys in the array does not match their order in the queue.
+     * @param a the array into which the keys from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the keys from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        Object[] result = toArray();
+
+        if (a.length < size)
+            return (T2[]) Arrays.copyOf(result, size, a.getClass());
+
+        System.arraycopy(result, 0, a, 0, size);
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the keys in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(toArray())
+                .map(n -> String.valueOf(n))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Returns an iterator over the keys from this queue.
+     * @return an iterator over the keys from this queue.
+     */
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int bucket = 0;
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (bucket < BUCKET_COUNT && cursor >= bucketSizes[bucket]) {
+                    bucket++;
+                    cursor = 0;
+                }
+
+                return bucket < BUCKET_COUNT;
+            }
+
+            @Override
+            public Long next() {
+                if (hasNext()) {
+                    return buckets[bucket][cursor++];
+                }
+
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the bucket of the specified key.
+     * Flipping the sign bit of both keys would not change the highest differing bit,
+     * so the bucket is found the same way for negative keys.
+     * @param key key whose bucket is to be found.
+     * @return index of the bucket.
+     */
+    private int bucketOf(long key) {
+        return 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    /**
+     * Appends the specified key to the specified bucket growing the bucket if necessary.
+     * @param bucket index of the bucket.
+     * @param key key to be appended.
+     */
+    private void put(int bucket, long key) {
+        long[] keys = buckets[bucket];
+        int bucketSize = bucketSizes[bucket];
+
+        if (keys == null) {
+            keys = new long[DEFAULT_BUCKET_CAPACITY];
+            buckets[bucket] = keys;
+        } else if (bucketSize == keys.length) {
+            keys = Arrays.copyOf(keys, bucketSize + (bucketSize >> 1) + 1);
+            buckets[bucket] = keys;
+        }
+
+        keys[bucketSize] = key;
+        bucketSizes[bucket] = bucketSize + 1;
+    }
+
+    /**
+     * Makes sure bucket 0 is not empty.
+     * If it is empty finds the first non-empty bucket, makes its least key the last polled one
+     * and moves all its keys into lower buckets. Each key can only move to lower buckets,
+     * so it is moved at most 64 times in total.
+     * This radix heap must not be empty.
+     */
+    private void redistribute() {
+        if (bucketSizes[0] > 0)
+            return;
+
+        int bucket = firstNonEmptyBucket();
+        long[] keys = buckets[bucket];
+        int bucketSize = bucketSizes[bucket];
+
+        last = leastOf(bucket);
+        bucketSizes[bucket] = 0;
+
+        for (int i = 0; i < bucketSize; i++)
+            put(bucketOf(keys[i]), keys[i]);
+    }
+
+    /**
+     * Returns the index of the first non-empty bucket.
+     * This radix heap must not be empty.
+     * @return index of the first non-empty bucket.
+     */
+    private int firstNonEmptyBucket() {
+        int bucket = 0;
+
+        while (bucketSizes[bucket] == 0)
+            bucket++;
+
+        return bucket;
+    }
+
+    /**
+     * Returns the least key of the specified bucket.
+     * The bucket must not be empty.
+     * @param bucket index of the bucket.
+     * @return the least key of the bucket.
+     */
+    private long leastOf(int bucket) {
+        long[] keys = buckets[bucket];
+        int bucketSize = bucketSizes[bucket];
+        long min = keys[0];
+
+        for (int i = 1; i < bucketSize; i++)
+            if (keys[i] < min)
+                min = keys[i];
+
+        return min;
+    }
+}
@@ -0,0 +1,345 @@
+package tree;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * <p>This class is an implementation of a queue.</p>
+ * <p>The implementation is based on a skew heap, a self-adjusting version of a leftist heap.
+ * Instead of keeping the distance to the nearest absent child in each node,
+ * a skew heap swaps the children of every node on the merge path,
+ * so its nodes are smaller than the nodes of a leftist heap.
+ * The merge is top-down and iterative, so even long paths do not overflow the stack.</p>
+ * <p>An instance of this class can contain any type of elements that could be ordered
+ * via comparator or in a natural order.</p>
+ * <p>This class offers an amortized O(log(n)) time performance
+ * on add/poll/mergeWith operations and O(1) time performance on the peek operation.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <T> type of element to be stored in this queue.
+ */
+public class SkewHeap<T> implements Heap<T> {
+    /**
+     * The root of this skew heap.
+     */
+    private Node root;
+    /**
+     * The number of elements in this skew heap.
+     */
+    private int size;
+
+    /**
+     * The comparator or null if this skew heap orders the elements in a natural order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a skew heap without any comparator.
+     */
+    public SkewHeap() {
+        this(null);
+    }
+
+    /**
+     * Creates a skew heap with the specified comparator.
+     * @param comparator the comparator that will be used to order the elements in this skew heap.
+     */
+    public SkewHeap(Comparator<? super T> comparator) {
+        this.root = null;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Appends the specified element to the end of this queue.
+     * @param value element to be appended.
+     * @throws NullPointerException if the element is null.
+     */
+    @Override
+    public void add(T value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        root = merge(root, new Node(value));
+        size++;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue without removing it.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T peek() {
+        if (size == 0)
+            return null;
+
+        return root.value;
+    }
+
+    /**
+     * Returns the value of the element at the beginning of the queue removing it.
+     * @return value of the element at the beginning of the queue
+     * or null if this queue is empty.
+     */
+    @Override
+    public T poll() {
+        if (size == 0)
+            return null;
+
+        T result = root.value;
+
+        root = merge(root.L, root.R);
+        size--;
+
+        return result;
+    }
+
+    /**
+     * Moves all the elements from another skew heap into this one.
+     * The other skew heap will be empty after this call returns.
+     * @param anotherHeap specified skew heap.
+     * @throws NullPointerException if the specified skew heap is null.
+     * @throws IllegalArgumentException if the specified skew heap is this one.
+     */
+    public void mergeWith(SkewHeap<T> anotherHeap) {
+        if (anotherHeap == null)
+            throw new NullPointerException();
+
+        if (anotherHeap == this)
+            throw new IllegalArgumentException();
+
+        root = merge(root, anotherHeap.root);
+        size += anotherHeap.size;
+
+        anotherHeap.root = null;
+        anotherHeap.size = 0;
+    }
+
+    /**
+     * Returns the size of this queue.
+     * @return the size of this queue.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if this queue contains no elements.
+     * @return tree if this queue contains no elements, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the elements from this queue.
+     * This queue will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns an array containing all the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @return an array containing all the elements from this queue.
+     */
+    @Override
+    public Object[] toArray() {
+        return Trees.<T>toArray(root, size);
+    }
+
+    /**
+     * Returns an array containing all if the elements from this queue.
+     * The order of the elements in the array does not match their order in the queue.
+     * @param a the array into which the elements from this queue are to
+     * be stored, if it is big enough, otherwise, a new array of the
+     * same type is allocated.
+     * @return an array containing all of the elements from this queue.
+     */
+    @Override
+    public <T2> T2[] toArray(T2[] a) {
+        return Trees.<T2>toArray(a, root, size);
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * The order of the elements in the string does not match their order in the queue.
+     * @return string representation of this queue.
+     */
+    @Override
+    public String toString() {
+        return Trees.<T>toString(root, size);
+    }
+
+    /**
+     * Returns an iterator over the elements from this queue.
+     * @return an iterator over the elements from this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return Trees.<T>getIterator(root, size);
+    }
+
+    /**
+     * Starts the process of merging two specified skew heaps into one.
+     * Calls <strong>mergeAsComparable</strong> or <strong>mergeWithComparator</strong>
+     * depending on the presence of a comparator in this skew heap.
+     * @param L first skew heap to be merged.
+     * @param R second skew heap to be merged.
+     * @return new skew heap which contains all the elements from two that were merged.
+     */
+    private Node merge(Node L, Node R) {
+        if (comparator == null)
+            return mergeAsComparable(L, R);
+        else
+            return mergeWithComparator(L, R);
+    }
+
+    /**
+     * Merges two specified skew heaps into one without using the comparator.
+     * The merge walks down the right paths of both heaps top-down without recursion:
+     * the node with the lesser value is linked, its left child becomes the right one
+     * and the rest of the merge continues in its left child.
+     * @param L first skew heap to be merged.
+     * @param R second skew heap to be merged.
+     * @return new skew heap which contains all the elements from two that were merged.
+     */
+    private Node mergeAsComparable(Node L, Node R) {
+        if (L == null) return R;
+        if (R == null) return L;
+
+        if (((Comparable<? super T>) L.value).compareTo(R.value) > 0) {
+            Node temp = L;
+            L = R;
+            R = temp;
+        }
+
+        Node result = L;
+
+        while (true) {
+            Node next = L.R;
+            L.R = L.L;
+
+            if (next == null) {
+                L.L = R;
+                break;
+            }
+
+            Comparable<? super T> nextValue = (Comparable<? super T>) next.value;
+
+            if (nextValue.compareTo(R.value) <= 0) {
+                L.L = next;
+                L = next;
+            } else {
+                L.L = R;
+                L = R;
+                R = next;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Merges two specified skew heaps into one using the comparator.
+     * The merge walks down the right paths of both heaps top-down without recursion:
+     * the node with the lesser value is linked, its left child becomes the right one
+     * and the rest of the merge continues in its left child.
+     * @param L first skew heap to be merged.
+     * @param R second skew heap to be merged.
+     * @return new skew heap which contains all the elements from two that were merged.
+     */
+    private Node mergeWithComparator(Node L, Node R) {
+        if (L == null) return R;
+        if (R == null) return L;
+
+        if (comparator.compare(L.value, R.value) > 0) {
+            Node temp = L;
+            L = R;
+            R = temp;
+        }
+
+        Node result = L;
+
+        while (true) {
+            Node next = L.R;
+            L.R = L.L;
+
+            if (next == null) {
+                L.L = R;
+                break;
+            }
+
+            if (comparator.compare(next.value, R.value) <= 0) {
+                L.L = next;
+                L = next;
+            } else {
+                L.L = R;
+                L = R;
+                R = next;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * A node of this skew heap.
+     * Actually each node can be considered as a skew heap.
+     */
+    private final class Node extends Trees.Node<T> {
+        /**
+         * Value stored in this node.
+         */
+        private final T value;
+        /**
+         * Left child.
+         */
+        private Node L;
+        /**
+         * Right child.
+         */
+        private Node R;
+
+        /**
+         * Creates a new node with the specified value.
+         * @param value value to be stored in the node.
+         */
+        Node(T value) {
+            this.value = value;
+            this.L = null;
+            this.R = null;
+        }
+
+        /**
+         * Returns the value stored.
+         * @return value stored.
+         */
+        @Override
+        T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns left child.
+         * @return left child.
+         */
+        @Override
+        Node getL() {
+            return L;
+        }
+
+        /**
+         * Returns right child.
+         * @return right child.
+         */
+        @Override
+        Node getR() {
+            return R;
+        }
+    }
+}
@@ -1,34 +1,58 @@
 package tree;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * <p>This class is an implementation of a set.</p>
- * <p>The implementation is based on a treap.</p>
+ * <p>The implementation is based on a treap.
+ * The nodes are changed in place: add/remove split and merge only the subtree
+ * below the position of the element, iteratively and without copying any nodes,
+ * so adding an element allocates exactly one node.</p>
  * <p>An instance of this class can contain any type of elements that could be ordered
  * via comparator or in a natural order.<br>
  * Please, note that all elements should be unique.
  * An attempt to add a duplicate element will not lead to anything.</p>
+ * <p>This class implements {@link NavigableSet}. The navigation methods descend from the root
+ * and allocate nothing, the views returned by subSet/headSet/tailSet/descendingSet are live
+ * and their iterators walk the treap lazily with a stack instead of copying it.
+ * The iterators are fail-fast.</p>
+ * <p>Each node also keeps the size of its subtree, so the order statistics
+ * (rank/select/countInRange) and the sizes of the range views are found by one descent.
+ * The nodes, split/merge and the navigation are shared with {@link TreapMap}
+ * through {@link TreapEngine}, the nodes of this set store only the elements.</p>
  * <p>This class offers an almost O(log(n)) time performance
- * on add/remove/contains operations.</p>
+ * on add/remove/contains/first/last/floor/ceiling/higher/lower/pollFirst/pollLast
+ * and rank/select/countInRange operations.</p>
+ * <p>Two treaps can be combined by union/intersection/difference operations which split
+ * one treap by the root of the other and join the results of the recursive calls.
+ * They take O(m*log(n/m + 1)) time for treaps of sizes m and n (m &lt;= n), and the recursive
+ * calls on large subtrees are run in parallel in the common fork-join pool.</p>
+ * <p>A treap can also be built from a sorted collection in O(n) time by
+ * <strong>fromSorted</strong>, or from an unsorted one by <strong>fromUnsorted</strong>,
+ * which sorts the elements in parallel first.</p>
  * <p><strong>Note that this implementation is not synchronized.</strong></p>
  * @param <T> type of element to be stored in this treap.
  */
-public class Treap<T> implements Tree<T> {
+public class Treap<T> extends AbstractSet<T> implements NavigableSet<T>, Tree<T> {
     /**
-     * The root of this treap.
+     * The treap that stores the elements as the keys.
      */
-    private Node root;
-    /**
-     * The number of elements in this treap.
-     */
-    private int size;
+    private final TreapEngine<T, Node<T>> engine;
 
     /**
-     * The comparator or null if treap orders elements in a natural order.
+     * The least total size of two subtrees for which a set operation
+     * on them is forked as a separate task.
      */
-    private final Comparator<? super T> comparator;
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
 
     /**
      * Creates a treap without any comparator.
@@ -42,384 +66,1238 @@ public class Treap<T> implements Tree<T> {
      * @param comparator comparator that will be used to order elements in this treap.
      */
     public Treap(Comparator<? super T> comparator) {
-        root = null;
-        this.comparator = comparator;
+        engine = new TreapEngine<T, Node<T>>(comparator) {
+            @Override
+            Treap.Node<T> newNode(T key, double y) {
+                return new Treap.Node<>(key, y);
+            }
+        };
+    }
+
+    /**
+     * Creates a treap without any comparator from the elements of the specified collection.
+     * The elements must be given in strictly increasing order.
+     * @param elements collection of the elements in strictly increasing order.
+     * @param <T> type of element to be stored in the treap.
+     * @return treap that contains all the elements of the collection.
+     * @throws NullPointerException if the collection contains null.
+     * @throws IllegalArgumentException if the elements are not in strictly increasing order.
+     * @see #fromSorted(Collection, Comparator)
+     */
+    public static <T> Treap<T> fromSorted(Collection<? extends T> elements) {
+        return fromSorted(elements, null);
+    }
+
+    /**
+     * Creates a treap with the specified comparator from the elements of the specified collection.
+     * The elements must be given in strictly increasing order.
+     * The treap is built as a Cartesian tree in O(n) time.
+     * @param elements collection of the elements in strictly increasing order.
+     * @param comparator comparator that will be used to order elements in the treap.
+     * @param <T> type of element to be stored in the treap.
+     * @return treap that contains all the elements of the collection.
+     * @throws NullPointerException if the collection contains null.
+     * @throws IllegalArgumentException if the elements are not in strictly increasing order.
+     */
+    public static <T> Treap<T> fromSorted(Collection<? extends T> elements, Comparator<? super T> comparator) {
+        Treap<T> treap = new Treap<>(comparator);
+        Object[] array = elements.toArray();
+
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == null)
+                throw new NullPointerException();
+
+            if (i > 0 && treap.engine.compare((T) array[i - 1], (T) array[i]) >= 0)
+                throw new IllegalArgumentException("Elements are not in strictly increasing order");
+        }
+
+        treap.engine.build(array, array.length);
+
+        return treap;
+    }
+
+    /**
+     * Creates a treap without any comparator from the elements of the specified collection.
+     * @param elements collection of the elements in any order, duplicates are allowed.
+     * @param <T> type of element to be stored in the treap.
+     * @return treap that contains all the distinct elements of the collection.
+     * @throws NullPointerException if the collection contains null.
+     * @see #fromUnsorted(Collection, Comparator)
+     */
+    public static <T> Treap<T> fromUnsorted(Collection<? extends T> elements) {
+        return fromUnsorted(elements, null);
+    }
+
+    /**
+     * Creates a treap with the specified comparator from the elements of the specified collection.
+     * The elements are sorted in parallel, the duplicates are dropped,
+     * then the treap is built in O(n) time like by <strong>fromSorted</strong>.
+     * @param elements collection of the elements in any order, duplicates are allowed.
+     * @param comparator comparator that will be used to order elements in the treap.
+     * @param <T> type of element to be stored in the treap.
+     * @return treap that contains all the distinct elements of the collection.
+     * @throws NullPointerException if the collection contains null.
+     */
+    public static <T> Treap<T> fromUnsorted(Collection<? extends T> elements, Comparator<? super T> comparator) {
+        Treap<T> treap = new Treap<>(comparator);
+        T[] array = (T[]) elements.toArray();
+
+        for (T x : array)
+            if (x == null)
+                throw new NullPointerException();
+
+        Arrays.parallelSort(array, treap.engine::compare);
+
+        int count = 0;
+
+        for (int i = 0; i < array.length; i++)
+            if (count == 0 || treap.engine.compare(array[count - 1], array[i]) != 0)
+                array[count++] = array[i];
+
+        treap.engine.build(array, count);
+
+        return treap;
     }
 
     /**
      * Adds the specified element into this set.
+     * The treap is descended once, a duplicate element is detected on the way.
      * @param x element to be added to this set.
+     * @return true if this set did not already contain the element, false otherwise.
      * @throws NullPointerException if the specified element is null.
      */
-    public void add(T x) {
-        if (x == null)
-            throw new NullPointerException();
+    @Override
+    public boolean add(T x) {
+        int size = engine.size;
 
-        if (contains(x))
-            return;
+        engine.insert(x);
 
-        size++;
+        return engine.size != size;
+    }
+
+    /**
+     * Removes the specified element from this set.
+     * The treap is descended once, the node of the element is replaced by the merge of its children.
+     * @param o element to be removed from this set.
+     * @return true if this set did contain the element, false otherwise.
+     * @throws NullPointerException if the specified element is null.
+     */
+    @Override
+    public boolean remove(Object o) {
+        return engine.delete((T) o) != null;
+    }
 
-        Node L, M, R;
+    /**
+     * Returns true only if this set contains the specified element.
+     * The treap is only read: the search descends from the root
+     * without splitting it, so nothing is allocated.
+     * @param o element whose presence in this set is to be tested.
+     * @return true if this set contains the specified element, false otherwise.
+     * @throws NullPointerException if the specified element is null.
+     */
+    @Override
+    public boolean contains(Object o) {
+        return engine.find((T) o) != null;
+    }
 
-        PairOfNodes pair = leftSplit(root, x);
-        L = pair.getL();
-        R = pair.getR();
+    /**
+     * Returns the element from this set that is equal to the specified one.
+     * The treap is only read: the search descends from the root
+     * without splitting it, so nothing is allocated.
+     * @param x element to be searched for.
+     * @return the element from this set that is equal to the specified one
+     * or null if this set does not contain such an element.
+     * @throws NullPointerException if the specified element is null.
+     */
+    public T get(T x) {
+        Node<T> N = engine.find(x);
 
-        M = new Node(x);
+        return N == null ? null : N.key;
+    }
 
-        root = merge(merge(L, M), R);
+    /**
+     * Returns the number of elements in this set that are less than the specified one.
+     * @param x element to be compared with.
+     * @return the number of elements less than the specified one.
+     */
+    public int rank(T x) {
+        return engine.countLess(x, false);
     }
 
     /**
-     * Removes the specified element from this set.
-     * @param x element to be removed from this set.
-     * @return true if this set did contain the element, false otherwise.
+     * Returns the element with the specified index in the ascending order of this set.
+     * @param index index of the element, the least element has index 0.
+     * @return the element with the specified index.
+     * @throws IndexOutOfBoundsException if there is no such index in this set.
      */
-    public boolean remove(T x) {
-        boolean result = false;
-        Node L, M, R;
+    public T select(int index) {
+        if (index < 0 || index >= engine.size)
+            throw new IndexOutOfBoundsException("Index: " + index + " size: " + engine.size);
 
-        PairOfNodes pair = rightSplit(root, x);
-        L = pair.getL();
-        R = pair.getR();
+        return engine.select(index).key;
+    }
 
-        pair = leftSplit(R, x);
-        M = pair.getL();
-        R = pair.getR();
+    /**
+     * Returns the number of elements in this set that are not less than
+     * the first specified element and not greater than the second one.
+     * @param lo low endpoint, inclusive.
+     * @param hi high endpoint, inclusive.
+     * @return the number of elements in the range or 0 if the low endpoint is greater than the high one.
+     */
+    public int countInRange(T lo, T hi) {
+        if (engine.compare(lo, hi) > 0)
+            return 0;
 
-        if (M != null) {
-            size--;
-            result = true;
-        }
+        return engine.countLess(hi, true) - engine.countLess(lo, false);
+    }
 
-        root = merge(L, R);
-        return result;
+    /**
+     * Moves all the elements of another treap that are absent in this one into this one.
+     * The other treap will be empty after this call returns.
+     * Both treaps must order the elements the same way.
+     * @param anotherTreap specified treap.
+     * @throws NullPointerException if the specified treap is null.
+     * @throws IllegalArgumentException if the specified treap is this one.
+     */
+    public void union(Treap<T> anotherTreap) {
+        combine(Operation.UNION, anotherTreap);
     }
 
     /**
-     * Returns true only if this set contains the specified element.
-     * @param x element whose presence in this set is to be tested.
-     * @return true if this set contains the specified element, false otherwise.
+     * Retains in this treap only the elements that are also contained in another treap.
+     * The other treap will be empty after this call returns.
+     * Both treaps must order the elements the same way.
+     * @param anotherTreap specified treap.
+     * @throws NullPointerException if the specified treap is null.
+     * @throws IllegalArgumentException if the specified treap is this one.
      */
-    public boolean contains(T x) {
-        Node L, M, R;
+    public void intersection(Treap<T> anotherTreap) {
+        combine(Operation.INTERSECTION, anotherTreap);
+    }
 
-        PairOfNodes pair = rightSplit(root, x);
-        L = pair.getL();
-        R = pair.getR();
+    /**
+     * Removes from this treap all the elements that are contained in another treap.
+     * The other treap will be empty after this call returns.
+     * Both treaps must order the elements the same way.
+     * @param anotherTreap specified treap.
+     * @throws NullPointerException if the specified treap is null.
+     * @throws IllegalArgumentException if the specified treap is this one.
+     */
+    public void difference(Treap<T> anotherTreap) {
+        combine(Operation.DIFFERENCE, anotherTreap);
+    }
 
-        pair = leftSplit(R, x);
-        M = pair.getL();
+    /**
+     * Returns the comparator used to order the elements in this set.
+     * @return the comparator or null if this set orders the elements in a natural order.
+     */
+    @Override
+    public Comparator<? super T> comparator() {
+        return engine.comparator;
+    }
 
-        root = merge(L, R);
+    /**
+     * Returns the least element in this set.
+     * @return the least element in this set.
+     * @throws NoSuchElementException if this set is empty.
+     */
+    @Override
+    public T first() {
+        return engine.key(engine.firstNode());
+    }
 
-        return M != null;
+    /**
+     * Returns the greatest element in this set.
+     * @return the greatest element in this set.
+     * @throws NoSuchElementException if this set is empty.
+     */
+    @Override
+    public T last() {
+        return engine.key(engine.lastNode());
     }
 
     /**
-     * Returns the size of this set.
-     * @return the size of this set.
+     * Returns the greatest element in this set strictly less than the specified one.
+     * @param x element to be compared with.
+     * @return the greatest element less than the specified one or null if there is no such element.
      */
     @Override
-    public int getSize() {
-        return this.size;
+    public T lower(T x) {
+        return engine.keyOrNull(engine.floorNode(x, false));
     }
 
     /**
-     * Returns true if this set contains no elements.
-     * @return true if this set contains no elements, false otherwise
+     * Returns the greatest element in this set less than or equal to the specified one.
+     * @param x element to be compared with.
+     * @return the greatest element less than or equal to the specified one
+     * or null if there is no such element.
      */
     @Override
-    public boolean isEmpty() {
-        return size == 0;
+    public T floor(T x) {
+        return engine.keyOrNull(engine.floorNode(x, true));
     }
 
     /**
-     * Removes all of the elements from this set.
-     * This set will be empty after this call returns.
+     * Returns the least element in this set greater than or equal to the specified one.
+     * @param x element to be compared with.
+     * @return the least element greater than or equal to the specified one
+     * or null if there is no such element.
      */
     @Override
-    public void clear() {
-        root = null;
-        size = 0;
+    public T ceiling(T x) {
+        return engine.keyOrNull(engine.ceilingNode(x, true));
+    }
+
+    /**
+     * Returns the least element in this set strictly greater than the specified one.
+     * @param x element to be compared with.
+     * @return the least element greater than the specified one or null if there is no such element.
+     */
+    @Override
+    public T higher(T x) {
+        return engine.keyOrNull(engine.ceilingNode(x, false));
+    }
+
+    /**
+     * Retrieves and removes the least element of this set.
+     * @return the least element of this set or null if this set is empty.
+     */
+    @Override
+    public T pollFirst() {
+        Node<T> N = engine.firstNode();
+
+        if (N == null)
+            return null;
+
+        engine.delete(N.key);
+
+        return N.key;
     }
 
     /**
-     * Returns an array containing all of elements from this set.
-     * @return array containing all of elements from this set.
+     * Retrieves and removes the greatest element of this set.
+     * @return the greatest element of this set or null if this set is empty.
      */
     @Override
-    public Object[] toArray() {
-        return Trees.<T>toArray(root, size);
+    public T pollLast() {
+        Node<T> N = engine.lastNode();
+
+        if (N == null)
+            return null;
+
+        engine.delete(N.key);
+
+        return N.key;
     }
 
     /**
-     * Returns an array containing all the elements from this set.
-     * @param a the array into which the elements of the this set are to
-     * be stored, if it is big enough; otherwise, a new array of the
-     * same type is allocated.
-     * @return an array containing all of the elements from this set.
+     * Returns a view of the portion of this set whose elements range
+     * from the first specified element to the second one.
+     * The view is backed by this set.
+     * @param fromElement low endpoint of the view.
+     * @param fromInclusive true if the low endpoint is to be included in the view.
+     * @param toElement high endpoint of the view.
+     * @param toInclusive true if the high endpoint is to be included in the view.
+     * @return a view of the portion of this set.
+     * @throws IllegalArgumentException if the low endpoint is greater than the high one.
      */
     @Override
-    public <T2> T2[] toArray(T2[] a) {
-        return Trees.<T2>toArray(a, root, size);
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (engine.compare(fromElement, toElement) > 0)
+            throw new IllegalArgumentException("fromElement > toElement");
+
+        return new SubSet(false, fromElement, fromInclusive, false, toElement, toInclusive);
     }
 
     /**
-     * Returns a string representation of this set.
-     * @return string representation of this set.
+     * Returns a view of the portion of this set whose elements are less than
+     * (or equal to, if inclusive is true) the specified element.
+     * The view is backed by this set.
+     * @param toElement high endpoint of the view.
+     * @param inclusive true if the high endpoint is to be included in the view.
+     * @return a view of the portion of this set.
      */
     @Override
-    public String toString() {
-        return Trees.<T>toString(root, size);
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        engine.compare(toElement, toElement); // type (and possibly null) check
+
+        return new SubSet(true, null, false, false, toElement, inclusive);
     }
 
     /**
-     * Returns an iterator over the elements from this set.
+     * Returns a view of the portion of this set whose elements are greater than
+     * (or equal to, if inclusive is true) the specified element.
+     * The view is backed by this set.
+     * @param fromElement low endpoint of the view.
+     * @param inclusive true if the low endpoint is to be included in the view.
+     * @return a view of the portion of this set.
+     */
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        engine.compare(fromElement, fromElement); // type (and possibly null) check
+
+        return new SubSet(false, fromElement, inclusive, true, null, false);
+    }
+
+    /**
+     * Returns a view of the portion of this set whose elements range
+     * from the first specified element, inclusive, to the second one, exclusive.
+     * @param fromElement low endpoint of the view.
+     * @param toElement high endpoint of the view.
+     * @return a view of the portion of this set.
+     * @throws IllegalArgumentException if the low endpoint is greater than the high one.
+     */
+    @Override
+    public NavigableSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    /**
+     * Returns a view of the portion of this set whose elements are less than the specified element.
+     * @param toElement high endpoint of the view.
+     * @return a view of the portion of this set.
+     */
+    @Override
+    public NavigableSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    /**
+     * Returns a view of the portion of this set whose elements are greater than
+     * or equal to the specified element.
+     * @param fromElement low endpoint of the view.
+     * @return a view of the portion of this set.
+     */
+    @Override
+    public NavigableSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Returns a reverse order view of the elements in this set.
+     * The view is backed by this set.
+     * @return a reverse order view of this set.
+     */
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingSet<>(this);
+    }
+
+    /**
+     * Returns an iterator over the elements from this set in descending order.
+     * @return iterator over the elements from this set in descending order.
+     */
+    @Override
+    public Iterator<T> descendingIterator() {
+        return engine.new NodeIterator<>(true, false, null, false, false, null, false, N -> N.key);
+    }
+
+    /**
+     * Returns the size of this set.
+     * @return the size of this set.
+     */
+    @Override
+    public int size() {
+        return engine.size;
+    }
+
+    /**
+     * Returns the size of this set.
+     * @return the size of this set.
+     */
+    @Override
+    public int getSize() {
+        return engine.size;
+    }
+
+    /**
+     * Returns true if this set contains no elements.
+     * @return true if this set contains no elements, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return engine.size == 0;
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     * This set will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        engine.clear();
+    }
+
+    /**
+     * Returns an iterator over the elements from this set in ascending order.
      * @return iterator over the elements from this set.
      */
     @Override
     public Iterator<T> iterator() {
-        return Trees.<T>getIterator(root, size);
+        return engine.new NodeIterator<>(false, false, null, false, false, null, false, N -> N.key);
     }
 
     /**
-     * Merges two specified treaps into one.
-     * @param L first treap to be merged.
-     * @param R second treap to be merged.
-     * @return new treap which contains all elements from two that were merged.
+     * Applies the specified set operation to this treap and another one
+     * storing the result in this treap and emptying the other one.
+     * The operation is run in the common fork-join pool if the treaps are large enough.
+     * @param operation operation to be applied.
+     * @param anotherTreap specified treap.
+     * @throws NullPointerException if the specified treap is null.
+     * @throws IllegalArgumentException if the specified treap is this one.
      */
-    private Node merge(Node L, Node R) {
-        if (L == null) return R;
-        if (R == null) return L;
+    private void combine(Operation operation, Treap<T> anotherTreap) {
+        if (anotherTreap == null)
+            throw new NullPointerException();
+
+        if (anotherTreap == this)
+            throw new IllegalArgumentException();
 
-        if (L.y > R.y)
-            return new Node(L.x, L.y, L.L, merge(L.R, R));
+        Node<T> A = engine.root;
+        Node<T> B = anotherTreap.engine.root;
+
+        if (engine.size + anotherTreap.engine.size >= PARALLEL_THRESHOLD)
+            engine.root = ForkJoinPool.commonPool().invoke(new SetOperation(operation, A, B));
         else
-            return new Node(R.x, R.y, merge(L, R.L), R.R);
+            engine.root = apply(operation, A, B, new TreapEngine.PairOfNodes<>(null, null));
+
+        engine.size = TreapEngine.sizeOf(engine.root);
+        engine.modCount++;
 
+        anotherTreap.engine.clear();
     }
 
     /**
-     * Splits a specified treap into two new treaps using the key.
-     * @param N treap to be splitted.
-     * @param x split key. <strong>If present in the primordial treap(N)
-     * will fall into the left of new treaps</strong>.
-     * @return a pair of treaps that contain all the elements from the one that got splitted.
+     * Applies the specified set operation to two treaps.
+     * For union and intersection the treap whose root has the higher priority keeps its root,
+     * and the other treap is split by it. For difference the first treap is split
+     * by the root of the second one. Then the operation is applied recursively
+     * to the left parts and to the right parts, and the results are linked
+     * under the kept root or joined if the root does not belong to the result.
+     * If the parts are large enough the left recursive call is forked as a separate task.
+     * @param operation operation to be applied.
+     * @param A first treap.
+     * @param B second treap.
+     * @param parts pair that receives the results of splitting.
+     * @return treap which contains the result of the operation.
      */
-    private PairOfNodes leftSplit(Node N, T x) {
-        if (N == null)
-            return new PairOfNodes(null, null);
+    private Node<T> apply(Operation operation, Node<T> A, Node<T> B, TreapEngine.PairOfNodes<Node<T>> parts) {
+        if (A == null)
+            return operation == Operation.UNION ? B : null;
 
-        Node L;
-        Node R;
-        Node newNode = null;
+        if (B == null)
+            return operation == Operation.INTERSECTION ? null : A;
 
-        boolean compareResult;
-        if (comparator == null) {
-            Comparable<? super T> value = (Comparable<? super T>) N.x;
+        Node<T> AL, AR, BL, BR;
+        Node<T> found;
 
-            compareResult = value.compareTo(x) <= 0;
+        if (operation == Operation.DIFFERENCE) {
+            found = divide(A, B.key, parts);
+            AL = parts.L;
+            AR = parts.R;
+            BL = B.L;
+            BR = B.R;
         } else {
-            compareResult = comparator.compare(N.x, x) <= 0;
+            if (A.y < B.y) {
+                Node<T> temp = A;
+                A = B;
+                B = temp;
+            }
+
+            found = divide(B, A.key, parts);
+            AL = A.L;
+            AR = A.R;
+            BL = parts.L;
+            BR = parts.R;
         }
 
-        if (compareResult) {
-            if (N.R == null) {
-                R = null;
-            } else {
-                PairOfNodes pair = leftSplit(N.R, x);
-                newNode = pair.getL();
-                R = pair.getR();
-            }
-            L = new Node(N.x, N.y, N.L, newNode);
+        parts.set(null, null);
+
+        int total = TreapEngine.sizeOf(AL) + TreapEngine.sizeOf(AR) + TreapEngine.sizeOf(BL) + TreapEngine.sizeOf(BR);
+        Node<T> L, R;
+
+        if (total >= PARALLEL_THRESHOLD) {
+            SetOperation left = new SetOperation(operation, AL, BL);
+            left.fork();
+
+            R = apply(operation, AR, BR, parts);
+            L = left.join();
         } else {
-            if (N.L == null) {
-                L = null;
-            } else {
-                PairOfNodes pair = leftSplit(N.L, x);
-                L = pair.getL();
-                newNode = pair.getR();
-            }
-            R = new Node(N.x, N.y, newNode, N.R);
+            L = apply(operation, AL, BL, parts);
+            R = apply(operation, AR, BR, parts);
         }
 
-        return new PairOfNodes(L, R);
+        if (operation == Operation.DIFFERENCE || operation == Operation.INTERSECTION && found == null)
+            return join(L, R);
+
+        A.L = L;
+        A.R = R;
+        A.updateSize();
+
+        return A;
     }
 
     /**
-     * Splits a specified treap into two new treaps using the key.
-     * @param N treap to be splitted
-     * @param x split key. <strong>If present in the primordial treap(N)
-     * will fall into the right of new treaps</strong>).
-     * @return a pair of treaps that contain all the elements from the one that got splitted.
+     * Splits a specified treap into two treaps in place using the key.
+     * Unlike the split of the engine it is recursive and does not use its buffers,
+     * so it can be called from several threads on disjoint treaps.
+     * @param N treap to be splitted.
+     * @param x split key.
+     * @param result pair that receives the treap of the elements less than the key
+     * as left and the treap of the elements greater than the key as right.
+     * @return node with the key equal to the split key or null if there is no such node.
      */
-    private PairOfNodes rightSplit(Node N, T x) {
-        if (N == null)
-            return new PairOfNodes(null, null);
-
-        Node L;
-        Node R;
-        Node newNode = null;
+    private Node<T> divide(Node<T> N, T x, TreapEngine.PairOfNodes<Node<T>> result) {
+        if (N == null) {
+            result.set(null, null);
+            return null;
+        }
 
-        boolean compareResult;
-        if (comparator == null) {
-            Comparable<? super T> value = (Comparable<? super T>) N.x;
+        int current = engine.compare(N.key, x);
+        Node<T> found;
 
-            compareResult = value.compareTo(x) < 0;
+        if (current < 0) {
+            found = divide(N.R, x, result);
+            N.R = result.L;
+            result.set(N, result.R);
+        } else if (current > 0) {
+            found = divide(N.L, x, result);
+            N.L = result.R;
+            result.set(result.L, N);
         } else {
-            compareResult = comparator.compare(N.x, x) < 0;
+            found = N;
+            result.set(N.L, N.R);
+            N.L = null;
+            N.R = null;
         }
 
-        if (compareResult) {
-            if (N.R == null) {
-                R = null;
-            } else {
-                PairOfNodes pair = rightSplit(N.R, x);
-                newNode = pair.getL();
-                R = pair.getR();
-            }
-            L = new Node(N.x, N.y, N.L, newNode);
+        N.updateSize();
+
+        return found;
+    }
+
+    /**
+     * Joins two specified treaps into one in place.
+     * All the elements of the first treap must be less than all the elements of the second one.
+     * Unlike the merge of the engine it is recursive and does not use its buffers,
+     * so it can be called from several threads on disjoint treaps.
+     * @param L first treap to be joined.
+     * @param R second treap to be joined.
+     * @return treap which contains all elements from two that were joined.
+     */
+    private Node<T> join(Node<T> L, Node<T> R) {
+        if (L == null) return R;
+        if (R == null) return L;
+
+        if (L.y > R.y) {
+            L.R = join(L.R, R);
+            L.updateSize();
+            return L;
         } else {
-            if (N.L == null) {
-                L = null;
-            } else {
-                PairOfNodes pair = rightSplit(N.L, x);
-                L = pair.getL();
-                newNode = pair.getR();
-            }
-            R = new Node(N.x, N.y, newNode, N.R);
+            R.L = join(L, R.L);
+            R.updateSize();
+            return R;
         }
+    }
 
-        return new PairOfNodes(L, R);
+    /**
+     * Set operations that can be applied to two treaps.
+     */
+    private enum Operation {
+        UNION, INTERSECTION, DIFFERENCE
     }
 
     /**
-     * A node of this treap.
-     * Actually each node can be considered as a treap.
+     * A task that applies a set operation to two treaps in a fork-join pool.
      */
-    private class Node extends Trees.Node<T> {
+    private final class SetOperation extends RecursiveTask<Node<T>> {
+        /**
+         * Serialization version of the task.
+         */
+        private static final long serialVersionUID = 1L;
         /**
-         * First key.
-         * Also a value that is stored.
+         * Operation to be applied.
          */
-        T x;
+        private final Operation operation;
         /**
-         * Second key.
+         * First treap.
          */
-        double y;
+        private final Node<T> A;
+        /**
+         * Second treap.
+         */
+        private final Node<T> B;
 
         /**
-         * Left child.
+         * Creates a task.
+         * @param operation operation to be applied.
+         * @param A first treap.
+         * @param B second treap.
          */
-        Node L;
+        SetOperation(Operation operation, Node<T> A, Node<T> B) {
+            this.operation = operation;
+            this.A = A;
+            this.B = B;
+        }
+
         /**
-         * Right child.
+         * Applies the operation.
+         * @return treap which contains the result of the operation.
          */
-        Node R;
+        @Override
+        protected Node<T> compute() {
+            return apply(operation, A, B, new TreapEngine.PairOfNodes<>(null, null));
+        }
+    }
+
+    /**
+     * A live view of the range of this treap.
+     * Each endpoint is either absent or is given together with its inclusiveness.
+     */
+    private final class SubSet extends AbstractSet<T> implements NavigableSet<T> {
+        /**
+         * The range of the treap that is viewed.
+         */
+        private final TreapEngine<T, Node<T>>.Range range;
 
         /**
-         * Creates a new node with the specified value.
-         * @param x value to be stored and used as a first key.
+         * Creates a view of the range of this treap.
+         * @param fromStart true if the view has no low endpoint.
+         * @param lo low endpoint of the view.
+         * @param loInclusive true if the low endpoint belongs to the view.
+         * @param toEnd true if the view has no high endpoint.
+         * @param hi high endpoint of the view.
+         * @param hiInclusive true if the high endpoint belongs to the view.
          */
-        Node(T x) {
-            this(x, Math.random(), null, null);
+        SubSet(boolean fromStart, T lo, boolean loInclusive, boolean toEnd, T hi, boolean hiInclusive) {
+            range = engine.new Range(fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
         }
 
         /**
-         * Creates a new node with the specified value and both children.
-         * @param x value to be stored and used as a first key.
-         * @param L left child.
-         * @param R right child.
+         * Returns the comparator used to order the elements in this view.
+         * @return the comparator or null if the elements are ordered in a natural order.
          */
-        Node(T x, Node L, Node R) {
-            this(x, Math.random(), L, R);
+        @Override
+        public Comparator<? super T> comparator() {
+            return engine.comparator;
         }
 
         /**
-         * Creates a new node with the specified value, second key and both children.
-         * @param x value to be stored and used as a first key.
-         * @param y second key.
-         * @param L left child.
-         * @param R right child.
+         * Returns the least element in this view.
+         * @return the least element in this view.
+         * @throws NoSuchElementException if this view is empty.
          */
-        Node(T x, double y, Node L, Node R) {
-            this.x = x;
-            this.y = y;
-            this.L = L;
-            this.R = R;
+        @Override
+        public T first() {
+            return engine.key(range.lowest());
         }
 
         /**
-         * Returns the value stored.
-         * @return value stored.
+         * Returns the greatest element in this view.
+         * @return the greatest element in this view.
+         * @throws NoSuchElementException if this view is empty.
          */
         @Override
-        T getValue() {
-            return x;
+        public T last() {
+            return engine.key(range.highest());
         }
 
         /**
-         * Returns left child.
-         * @return left child.
+         * Returns the greatest element in this view strictly less than the specified one.
+         * @param x element to be compared with.
+         * @return the greatest element less than the specified one or null if there is no such element.
          */
         @Override
-        Node getL() {
-            return L;
+        public T lower(T x) {
+            return engine.keyOrNull(range.floor(x, false));
         }
 
         /**
-         * Returns right child.
-         * @return right child.
+         * Returns the greatest element in this view less than or equal to the specified one.
+         * @param x element to be compared with.
+         * @return the greatest element less than or equal to the specified one or null if there is no such element.
          */
         @Override
-        Node getR() {
-            return R;
+        public T floor(T x) {
+            return engine.keyOrNull(range.floor(x, true));
+        }
+
+        /**
+         * Returns the least element in this view greater than or equal to the specified one.
+         * @param x element to be compared with.
+         * @return the least element greater than or equal to the specified one or null if there is no such element.
+         */
+        @Override
+        public T ceiling(T x) {
+            return engine.keyOrNull(range.ceiling(x, true));
+        }
+
+        /**
+         * Returns the least element in this view strictly greater than the specified one.
+         * @param x element to be compared with.
+         * @return the least element greater than the specified one or null if there is no such element.
+         */
+        @Override
+        public T higher(T x) {
+            return engine.keyOrNull(range.ceiling(x, false));
+        }
+
+        /**
+         * Retrieves and removes the least element of this view.
+         * @return the least element of this view or null if this view is empty.
+         */
+        @Override
+        public T pollFirst() {
+            Node<T> N = range.lowest();
+
+            if (N == null)
+                return null;
+
+            engine.delete(N.key);
+
+            return N.key;
+        }
+
+        /**
+         * Retrieves and removes the greatest element of this view.
+         * @return the greatest element of this view or null if this view is empty.
+         */
+        @Override
+        public T pollLast() {
+            Node<T> N = range.highest();
+
+            if (N == null)
+                return null;
+
+            engine.delete(N.key);
+
+            return N.key;
+        }
+
+        /**
+         * Adds the specified element into the original set.
+         * @param x element to be added.
+         * @return true if the set did not already contain the element, false otherwise.
+         * @throws IllegalArgumentException if the element is out of the range of this view.
+         */
+        @Override
+        public boolean add(T x) {
+            if (!range.inRange(x))
+                throw new IllegalArgumentException("key out of range");
+
+            return Treap.this.add(x);
+        }
+
+        /**
+         * Removes the specified element from the original set if it belongs to this view.
+         * @param o element to be removed.
+         * @return true if this view did contain the element, false otherwise.
+         */
+        @Override
+        public boolean remove(Object o) {
+            return range.inRange((T) o) && Treap.this.remove(o);
+        }
+
+        /**
+         * Returns true only if this view contains the specified element.
+         * @param o element whose presence is to be tested.
+         * @return true if this view contains the element, false otherwise.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return range.inRange((T) o) && Treap.this.contains(o);
+        }
+
+        /**
+         * Returns true if this view contains no elements.
+         * @return true if this view contains no elements, false otherwise.
+         */
+        @Override
+        public boolean isEmpty() {
+            return range.lowest() == null;
+        }
+
+        /**
+         * Returns the number of elements in this view.
+         * The elements below each endpoint are counted by one descent.
+         * @return the number of elements in this view.
+         */
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        /**
+         * Returns an iterator over the elements from this view in its order.
+         * @return iterator over the elements from this view.
+         */
+        @Override
+        public Iterator<T> iterator() {
+            return range.iterator(false, N -> N.key);
+        }
+
+        /**
+         * Returns an iterator over the elements from this view in reverse order.
+         * @return iterator over the elements from this view in reverse order.
+         */
+        @Override
+        public Iterator<T> descendingIterator() {
+            return range.iterator(true, N -> N.key);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements range from the first specified element to the second one.
+         * @param fromElement low endpoint of the view.
+         * @param fromInclusive true if the low endpoint is to be included in the view.
+         * @param toElement high endpoint of the view.
+         * @param toInclusive true if the high endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         * @throws IllegalArgumentException if an endpoint is out of the range of this view.
+         */
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (!range.inRange(fromElement, fromInclusive))
+                throw new IllegalArgumentException("fromElement out of range");
+
+            if (!range.inRange(toElement, toInclusive))
+                throw new IllegalArgumentException("toElement out of range");
+
+            if (engine.compare(fromElement, toElement) > 0)
+                throw new IllegalArgumentException("fromElement > toElement");
+
+            return new SubSet(false, fromElement, fromInclusive, false, toElement, toInclusive);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are less than (or equal to, if inclusive is true) the specified element.
+         * @param toElement high endpoint of the view.
+         * @param inclusive true if the high endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (!range.inRange(toElement, inclusive))
+                throw new IllegalArgumentException("toElement out of range");
+
+            return new SubSet(range.fromStart, range.lo, range.loInclusive, false, toElement, inclusive);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are greater than (or equal to, if inclusive is true) the specified element.
+         * @param fromElement low endpoint of the view.
+         * @param inclusive true if the low endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (!range.inRange(fromElement, inclusive))
+                throw new IllegalArgumentException("fromElement out of range");
+
+            return new SubSet(false, fromElement, inclusive, range.toEnd, range.hi, range.hiInclusive);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements range from the first specified element, inclusive, to the second one, exclusive.
+         * @param fromElement low endpoint of the view.
+         * @param toElement high endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are less than the specified element.
+         * @param toElement high endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are greater than or equal to the specified element.
+         * @param fromElement low endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        /**
+         * Returns a reverse order view of this view.
+         * @return a reverse order view of this view.
+         */
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new DescendingSet<>(this);
         }
     }
 
     /**
-     * Helper class.
-     * Allows methods to return two treaps at ones.
-     * Is used in slitting methods.
-     * An instance contains two treaps, which are
-     * are referred as left and right.
+     * A live reverse order view of a navigable set.
+     * Each operation is delegated to the mirrored operation of the original set.
+     * @param <E> type of the elements.
      */
-    private class PairOfNodes {
+    private static final class DescendingSet<E> extends AbstractSet<E> implements NavigableSet<E> {
         /**
-         * Left treap.
+         * The original set.
          */
-        private Node L;
+        private final NavigableSet<E> base;
+
         /**
-         * Right treap.
+         * Creates a reverse order view of the specified set.
+         * @param base the original set.
          */
-        private Node R;
+        DescendingSet(NavigableSet<E> base) {
+            this.base = base;
+        }
 
         /**
-         * Returns left treap.
-         * @return left treap.
+         * Returns the comparator used to order the elements in this view.
+         * @return the comparator or null if the elements are ordered in a natural order.
          */
-        Node getL() {
-            return L;
+        @Override
+        public Comparator<? super E> comparator() {
+            return Collections.reverseOrder(base.comparator());
         }
 
         /**
-         * Returns right treap.
-         * @return right treap.
+         * Returns the least element in this view.
+         * @return the least element in this view.
+         * @throws NoSuchElementException if this view is empty.
          */
-        Node getR() {
-            return R;
+        @Override
+        public E first() {
+            return base.last();
+        }
+
+        /**
+         * Returns the greatest element in this view.
+         * @return the greatest element in this view.
+         * @throws NoSuchElementException if this view is empty.
+         */
+        @Override
+        public E last() {
+            return base.first();
+        }
+
+        /**
+         * Returns the greatest element in this view strictly less than the specified one.
+         * @param x element to be compared with.
+         * @return the greatest element less than the specified one or null if there is no such element.
+         */
+        @Override
+        public E lower(E x) {
+            return base.higher(x);
+        }
+
+        /**
+         * Returns the greatest element in this view less than or equal to the specified one.
+         * @param x element to be compared with.
+         * @return the greatest element less than or equal to the specified one or null if there is no such element.
+         */
+        @Override
+        public E floor(E x) {
+            return base.ceiling(x);
+        }
+
+        /**
+         * Returns the least element in this view greater than or equal to the specified one.
+         * @param x element to be compared with.
+         * @return the least element greater than or equal to the specified one or null if there is no such element.
+         */
+        @Override
+        public E ceiling(E x) {
+            return base.floor(x);
+        }
+
+        /**
+         * Returns the least element in this view strictly greater than the specified one.
+         * @param x element to be compared with.
+         * @return the least element greater than the specified one or null if there is no such element.
+         */
+        @Override
+        public E higher(E x) {
+            return base.lower(x);
+        }
+
+        /**
+         * Retrieves and removes the least element of this view.
+         * @return the least element of this view or null if this view is empty.
+         */
+        @Override
+        public E pollFirst() {
+            return base.pollLast();
+        }
+
+        /**
+         * Retrieves and removes the greatest element of this view.
+         * @return the greatest element of this view or null if this view is empty.
+         */
+        @Override
+        public E pollLast() {
+            return base.pollFirst();
+        }
+
+        /**
+         * Adds the specified element into the original set.
+         * @param x element to be added.
+         * @return true if the set did not already contain the element, false otherwise.
+         */
+        @Override
+        public boolean add(E x) {
+            return base.add(x);
+        }
+
+        /**
+         * Removes the specified element from the original set.
+         * @param o element to be removed.
+         * @return true if this view did contain the element, false otherwise.
+         */
+        @Override
+        public boolean remove(Object o) {
+            return base.remove(o);
+        }
+
+        /**
+         * Returns true only if this view contains the specified element.
+         * @param o element whose presence is to be tested.
+         * @return true if this view contains the element, false otherwise.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return base.contains(o);
+        }
+
+        /**
+         * Returns true if this view contains no elements.
+         * @return true if this view contains no elements, false otherwise.
+         */
+        @Override
+        public boolean isEmpty() {
+            return base.isEmpty();
         }
 
         /**
-         * Creates a new pair of treaps.
-         * @param L first treap (will be referred as left).
-         * @param R second treap (will be referred as right).
+         * Returns the number of elements in this view.
+         * @return the number of elements in this view.
+         */
+        @Override
+        public int size() {
+            return base.size();
+        }
+
+        /**
+         * Returns an iterator over the elements from this view in its order.
+         * @return iterator over the elements from this view.
+         */
+        @Override
+        public Iterator<E> iterator() {
+            return base.descendingIterator();
+        }
+
+        /**
+         * Returns an iterator over the elements from this view in reverse order.
+         * @return iterator over the elements from this view in reverse order.
+         */
+        @Override
+        public Iterator<E> descendingIterator() {
+            return base.iterator();
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements range from the first specified element to the second one.
+         * @param fromElement low endpoint of the view.
+         * @param fromInclusive true if the low endpoint is to be included in the view.
+         * @param toElement high endpoint of the view.
+         * @param toInclusive true if the high endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         * @throws IllegalArgumentException if an endpoint is out of the range of this view.
+         */
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return base.subSet(toElement, toInclusive, fromElement, fromInclusive).descendingSet();
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are less than (or equal to, if inclusive is true) the specified element.
+         * @param toElement high endpoint of the view.
+         * @param inclusive true if the high endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return base.tailSet(toElement, inclusive).descendingSet();
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are greater than (or equal to, if inclusive is true) the specified element.
+         * @param fromElement low endpoint of the view.
+         * @param inclusive true if the low endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return base.headSet(fromElement, inclusive).descendingSet();
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements range from the first specified element, inclusive, to the second one, exclusive.
+         * @param fromElement low endpoint of the view.
+         * @param toElement high endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are less than the specified element.
+         * @param toElement high endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose elements are greater than or equal to the specified element.
+         * @param fromElement low endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public NavigableSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        /**
+         * Returns the original set, which is the reverse order view of this view.
+         * @return the original set.
+         */
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return base;
+        }
+    }
+
+    /**
+     * A node of this treap.
+     * Stores only the element, which is also the first key.
+     */
+    private static final class Node<T> extends TreapEngine.Node<T, Node<T>> {
+        /**
+         * Creates a new node with the specified element and priority.
+         * @param x element to be stored and used as a first key.
+         * @param y second key.
          */
-        PairOfNodes(Node L, Node R) {
-            this.L = L;
-            this.R = R;
+        Node(T x, double y) {
+            super(x, y);
         }
     }
 }
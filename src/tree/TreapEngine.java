@@ -0,0 +1,1068 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * <p>The engine of the collections based on a treap that is changed in place.</p>
+ * <p>Keeps the root, the size and the number of modifications of a treap and implements
+ * everything that does not depend on what the nodes store besides the keys:
+ * the iterative split and merge, add/remove by one descent, the lookups, the navigation,
+ * the order statistics, the ranges and the iterators.
+ * Each node keeps the size of its subtree, so the order statistics
+ * and the sizes of the ranges are found by one descent.</p>
+ * <p>The nodes are created by the collection through <strong>newNode</strong>,
+ * so a set stores only the keys in them and a map stores the values in the same nodes.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <K> type of the keys.
+ * @param <E> type of the nodes.
+ */
+abstract class TreapEngine<K, E extends TreapEngine.Node<K, E>> {
+    /**
+     * The root of the treap.
+     */
+    E root;
+    /**
+     * The number of nodes in the treap.
+     */
+    int size;
+    /**
+     * The number of structural modifications of the treap.
+     * Is used by the iterators to detect concurrent modifications.
+     */
+    int modCount;
+
+    /**
+     * The comparator or null if the keys are ordered in a natural order.
+     */
+    final Comparator<? super K> comparator;
+
+    /**
+     * Pair that receives the results of splitting.
+     * Is kept between the operations to avoid allocating it each time.
+     */
+    private final PairOfNodes<E> pair = new PairOfNodes<>(null, null);
+    /**
+     * Nodes whose children were changed by the current split or merge, in the order of visiting.
+     * Is kept between the operations to avoid allocating it each time.
+     */
+    private Object[] path = new Object[32];
+    /**
+     * Number of the nodes in the path.
+     */
+    private int pathLength;
+
+    /**
+     * Creates an empty treap.
+     * @param comparator comparator that will be used to order the keys or null for a natural order.
+     */
+    TreapEngine(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Creates a node that is not linked to any other node yet.
+     * @param key key to be stored.
+     * @param y priority of the node.
+     * @return created node.
+     */
+    abstract E newNode(K key, double y);
+
+    /**
+     * Adds the specified key unless it is already present.
+     * Descends once to the first node with a lower priority than the new one,
+     * remembering the visited nodes and stopping at once if one of them stores the key,
+     * then splits only that subtree between the children of the new node.
+     * If the split meets the key the subtree is merged back unchanged.
+     * The sizes of the remembered nodes are increased only after the node was linked.
+     * The size of the treap tells the caller whether the node was added.
+     * @param key key to be added.
+     * @return the node that stores the key: the existing one or the added one.
+     * @throws NullPointerException if the specified key is null.
+     */
+    E insert(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        double y = Math.random();
+        E parent = null;
+        E N = root;
+        int result = 0;
+
+        while (N != null && N.y > y) {
+            int current = compare(key, N.key);
+
+            if (current == 0) {
+                releasePath(0);
+                return N;
+            }
+
+            pushPath(N);
+            parent = N;
+            result = current;
+            N = current < 0 ? N.L : N.R;
+        }
+
+        E found = split(N, key, pair);
+        E M;
+
+        if (found == null) {
+            M = newNode(key, y);
+            M.L = pair.L;
+            M.R = pair.R;
+            M.updateSize();
+        } else {
+            found.updateSize();
+            M = merge(merge(pair.L, found), pair.R);
+        }
+
+        pair.set(null, null);
+
+        if (parent == null)
+            root = M;
+        else if (result < 0)
+            parent.L = M;
+        else
+            parent.R = M;
+
+        if (found != null) {
+            releasePath(0);
+            return found;
+        }
+
+        releasePath(1);
+        size++;
+        modCount++;
+
+        return M;
+    }
+
+    /**
+     * Removes the node that stores the specified key.
+     * Descends once to the node remembering the visited nodes,
+     * then replaces it by the merge of its children
+     * and decreases the sizes of the remembered nodes.
+     * @param key key to be removed.
+     * @return removed node or null if there was no such node.
+     * @throws NullPointerException if the specified key is null.
+     */
+    E delete(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        E parent = null;
+        E N = root;
+        int result = 0;
+
+        while (N != null) {
+            int current = compare(key, N.key);
+
+            if (current == 0)
+                break;
+
+            pushPath(N);
+            parent = N;
+            result = current;
+            N = current < 0 ? N.L : N.R;
+        }
+
+        if (N == null) {
+            releasePath(0);
+            return null;
+        }
+
+        E M = merge(N.L, N.R);
+
+        if (parent == null)
+            root = M;
+        else if (result < 0)
+            parent.L = M;
+        else
+            parent.R = M;
+
+        releasePath(-1);
+        N.L = null;
+        N.R = null;
+        size--;
+        modCount++;
+
+        return N;
+    }
+
+    /**
+     * Removes all the nodes from the treap.
+     */
+    void clear() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Replaces the content of the treap with a Cartesian tree of the specified keys.
+     * The nodes on the right spine are kept on a stack, each new node pops the nodes
+     * with lower priorities, takes the last popped one as its left child
+     * and becomes the right child of the top of the stack.
+     * The size of a node is computed when it is popped, since its subtree is complete by then.
+     * @param sorted array of the keys in strictly increasing order.
+     * @param count number of the keys at the beginning of the array.
+     */
+    void build(Object[] sorted, int count) {
+        Object[] stack = new Object[16];
+        int depth = 0;
+
+        for (int i = 0; i < count; i++) {
+            E N = newNode((K) sorted[i], Math.random());
+            E last = null;
+
+            while (depth > 0 && ((E) stack[depth - 1]).y < N.y) {
+                last = (E) stack[--depth];
+                last.updateSize();
+            }
+
+            N.L = last;
+
+            if (depth > 0)
+                ((E) stack[depth - 1]).R = N;
+
+            if (depth == stack.length)
+                stack = Arrays.copyOf(stack, depth * 2);
+
+            stack[depth++] = N;
+        }
+
+        while (depth > 0)
+            ((E) stack[--depth]).updateSize();
+
+        root = count == 0 ? null : (E) stack[0];
+        size = count;
+        modCount++;
+    }
+
+    /**
+     * Finds the node that stores the specified key.
+     * The treap is only read, so nothing is allocated.
+     * @param key key to be searched for.
+     * @return node that stores the key or null if there is no such node.
+     * @throws NullPointerException if the specified key is null.
+     */
+    E find(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        E N = root;
+
+        while (N != null) {
+            int result = compare(key, N.key);
+
+            if (result == 0)
+                return N;
+
+            N = result < 0 ? N.L : N.R;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the node with the specified index in the ascending order of the keys.
+     * @param index index of the node, must be in the range from 0 to size - 1.
+     * @return node with the specified index.
+     */
+    E select(int index) {
+        E N = root;
+
+        while (true) {
+            int leftSize = sizeOf(N.L);
+
+            if (index < leftSize) {
+                N = N.L;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                N = N.R;
+            } else {
+                return N;
+            }
+        }
+    }
+
+    /**
+     * Counts the keys less than (or equal to, if inclusive is true) the specified one.
+     * Descends from the root adding up the sizes of the subtrees left behind.
+     * @param key key to be compared with.
+     * @param inclusive true if an equal key is to be counted.
+     * @return the number of the counted keys.
+     */
+    int countLess(K key, boolean inclusive) {
+        E N = root;
+        int count = 0;
+
+        while (N != null) {
+            int current = compare(N.key, key);
+
+            if (current < 0 || current == 0 && inclusive) {
+                count += sizeOf(N.L) + 1;
+                N = N.R;
+            } else {
+                N = N.L;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the node with the least key.
+     * @return node with the least key or null if the treap is empty.
+     */
+    E firstNode() {
+        E N = root;
+
+        if (N != null)
+            while (N.L != null)
+                N = N.L;
+
+        return N;
+    }
+
+    /**
+     * Returns the node with the greatest key.
+     * @return node with the greatest key or null if the treap is empty.
+     */
+    E lastNode() {
+        E N = root;
+
+        if (N != null)
+            while (N.R != null)
+                N = N.R;
+
+        return N;
+    }
+
+    /**
+     * Returns the node with the least key greater than
+     * (or equal to, if inclusive is true) the specified one.
+     * @param key key to be compared with.
+     * @param inclusive true if an equal key is suitable.
+     * @return found node or null if there is no such node.
+     */
+    E ceilingNode(K key, boolean inclusive) {
+        E N = root;
+        E result = null;
+
+        while (N != null) {
+            int current = compare(N.key, key);
+
+            if (current > 0 || current == 0 && inclusive) {
+                if (current == 0)
+                    return N;
+
+                result = N;
+                N = N.L;
+            } else {
+                N = N.R;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the node with the greatest key less than
+     * (or equal to, if inclusive is true) the specified one.
+     * @param key key to be compared with.
+     * @param inclusive true if an equal key is suitable.
+     * @return found node or null if there is no such node.
+     */
+    E floorNode(K key, boolean inclusive) {
+        E N = root;
+        E result = null;
+
+        while (N != null) {
+            int current = compare(N.key, key);
+
+            if (current < 0 || current == 0 && inclusive) {
+                if (current == 0)
+                    return N;
+
+                result = N;
+                N = N.R;
+            } else {
+                N = N.L;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key stored in the specified node.
+     * @param N node or null.
+     * @return key stored in the node.
+     * @throws NoSuchElementException if the node is null.
+     */
+    K key(E N) {
+        if (N == null)
+            throw new NoSuchElementException();
+
+        return N.key;
+    }
+
+    /**
+     * Returns the key stored in the specified node.
+     * @param N node or null.
+     * @return key stored in the node or null if the node is null.
+     */
+    K keyOrNull(E N) {
+        return N == null ? null : N.key;
+    }
+
+    /**
+     * Compares two keys using the comparator or their natural order.
+     * @param a first key to be compared.
+     * @param b second key to be compared.
+     * @return a negative number, zero or a positive number as the first key
+     * is less than, equal to, or greater than the second.
+     */
+    int compare(K a, K b) {
+        if (comparator == null)
+            return ((Comparable<? super K>) a).compareTo(b);
+        else
+            return comparator.compare(a, b);
+    }
+
+    /**
+     * Merges two specified treaps into one in place.
+     * All the keys of the first treap must be less than all the keys of the second one.
+     * The merge walks down the right spine of the first treap and the left spine of the second one
+     * top-down without recursion, each time linking the node with the higher priority.
+     * @param L first treap to be merged.
+     * @param R second treap to be merged.
+     * @return treap which contains all nodes from two that were merged.
+     */
+    private E merge(E L, E R) {
+        if (L == null) return R;
+        if (R == null) return L;
+
+        int from = pathLength;
+        E result = L.y > R.y ? L : R;
+        E parent = null;
+        boolean toRight = false;
+
+        while (L != null && R != null) {
+            E N = L.y > R.y ? L : R;
+
+            if (parent != null) {
+                if (toRight)
+                    parent.R = N;
+                else
+                    parent.L = N;
+            }
+
+            parent = N;
+            toRight = N == L;
+            pushPath(N);
+
+            if (toRight)
+                L = L.R;
+            else
+                R = R.L;
+        }
+
+        if (toRight)
+            parent.R = L != null ? L : R;
+        else
+            parent.L = L != null ? L : R;
+
+        repairPath(from);
+
+        return result;
+    }
+
+    /**
+     * Splits a specified treap into two treaps in place using the key.
+     * The split walks down the treap top-down without recursion, hanging each visited node
+     * either on the right spine of the left treap or on the left spine of the right one.
+     * The node with the key equal to the split key (if any) is cut out,
+     * its children fall into the left and the right treaps respectively.
+     * @param N treap to be splitted.
+     * @param key split key.
+     * @param result pair that receives the treap of the keys less than the split key
+     * as left and the treap of the keys greater than the split key as right.
+     * @return node with the key equal to the split key or null if there is no such node.
+     */
+    private E split(E N, K key, PairOfNodes<E> result) {
+        E leftRoot = null, leftTail = null;
+        E rightRoot = null, rightTail = null;
+        E found = null;
+        int from = pathLength;
+
+        while (N != null) {
+            int current = compare(N.key, key);
+
+            if (current < 0) {
+                if (leftTail == null)
+                    leftRoot = N;
+                else
+                    leftTail.R = N;
+
+                leftTail = N;
+                pushPath(N);
+                N = N.R;
+            } else if (current > 0) {
+                if (rightTail == null)
+                    rightRoot = N;
+                else
+                    rightTail.L = N;
+
+                rightTail = N;
+                pushPath(N);
+                N = N.L;
+            } else {
+                found = N;
+                break;
+            }
+        }
+
+        E restL = found == null ? null : found.L;
+        E restR = found == null ? null : found.R;
+
+        if (leftTail == null)
+            leftRoot = restL;
+        else
+            leftTail.R = restL;
+
+        if (rightTail == null)
+            rightRoot = restR;
+        else
+            rightTail.L = restR;
+
+        if (found != null) {
+            found.L = null;
+            found.R = null;
+        }
+
+        repairPath(from);
+        result.set(leftRoot, rightRoot);
+
+        return found;
+    }
+
+    /**
+     * Remembers the specified node as changed by the current operation.
+     * @param N node to be remembered.
+     */
+    private void pushPath(E N) {
+        if (pathLength == path.length)
+            path = Arrays.copyOf(path, pathLength * 2);
+
+        path[pathLength++] = N;
+    }
+
+    /**
+     * Updates the sizes of the nodes changed by the current split or merge,
+     * starting from the last visited one, and forgets them.
+     * Each of them has got its new children among the nodes visited after it.
+     * @param from position in the path of the first node remembered by the split or merge.
+     */
+    private void repairPath(int from) {
+        for (int i = pathLength - 1; i >= from; i--) {
+            ((Node<?, ?>) path[i]).updateSize();
+            path[i] = null;
+        }
+
+        pathLength = from;
+    }
+
+    /**
+     * Changes the sizes of the remembered nodes by the specified number and forgets them.
+     * Is used for the ancestors of an added or removed node, whose subtrees
+     * changed by exactly one node.
+     * @param delta number to be added to the sizes.
+     */
+    private void releasePath(int delta) {
+        for (int i = pathLength - 1; i >= 0; i--) {
+            ((Node<?, ?>) path[i]).size += delta;
+            path[i] = null;
+        }
+
+        pathLength = 0;
+    }
+
+    /**
+     * Returns the size of the specified node.
+     * @param N node whose size will be returned.
+     * @return size of the node or 0 if the node is null.
+     */
+    static int sizeOf(Node<?, ?> N) {
+        return N == null ? 0 : N.size;
+    }
+
+    /**
+     * The range of the keys of the treap.
+     * Each endpoint is either absent or is given together with its inclusiveness.
+     */
+    final class Range {
+        /**
+         * True if the range has no low endpoint.
+         */
+        final boolean fromStart;
+        /**
+         * Low endpoint of the range.
+         */
+        final K lo;
+        /**
+         * True if the low endpoint belongs to the range.
+         */
+        final boolean loInclusive;
+        /**
+         * True if the range has no high endpoint.
+         */
+        final boolean toEnd;
+        /**
+         * High endpoint of the range.
+         */
+        final K hi;
+        /**
+         * True if the high endpoint belongs to the range.
+         */
+        final boolean hiInclusive;
+
+        /**
+         * Creates a range of the treap.
+         * @param fromStart true if the range has no low endpoint.
+         * @param lo low endpoint of the range.
+         * @param loInclusive true if the low endpoint belongs to the range.
+         * @param toEnd true if the range has no high endpoint.
+         * @param hi high endpoint of the range.
+         * @param hiInclusive true if the high endpoint belongs to the range.
+         */
+        Range(boolean fromStart, K lo, boolean loInclusive, boolean toEnd, K hi, boolean hiInclusive) {
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        /**
+         * Checks whether the specified key is below this range.
+         * @param key key to be checked.
+         * @return true if the key is below this range.
+         */
+        boolean tooLow(K key) {
+            if (fromStart)
+                return false;
+
+            int current = compare(key, lo);
+
+            return current < 0 || current == 0 && !loInclusive;
+        }
+
+        /**
+         * Checks whether the specified key is above this range.
+         * @param key key to be checked.
+         * @return true if the key is above this range.
+         */
+        boolean tooHigh(K key) {
+            if (toEnd)
+                return false;
+
+            int current = compare(key, hi);
+
+            return current > 0 || current == 0 && !hiInclusive;
+        }
+
+        /**
+         * Checks whether the specified key is in this range.
+         * @param key key to be checked.
+         * @return true if the key is in this range.
+         */
+        boolean inRange(K key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Checks whether the specified endpoint of a nested range is in this range.
+         * An exclusive endpoint may be equal to an endpoint of this range.
+         * @param key endpoint to be checked.
+         * @param inclusive true if the endpoint belongs to the nested range.
+         * @return true if the endpoint is suitable.
+         */
+        boolean inRange(K key, boolean inclusive) {
+            if (inclusive)
+                return inRange(key);
+
+            return (fromStart || compare(key, lo) >= 0) && (toEnd || compare(key, hi) <= 0);
+        }
+
+        /**
+         * Returns the node with the least key in this range.
+         * @return found node or null if this range is empty.
+         */
+        E lowest() {
+            E N = fromStart ? firstNode() : ceilingNode(lo, loInclusive);
+
+            return N == null || tooHigh(N.key) ? null : N;
+        }
+
+        /**
+         * Returns the node with the greatest key in this range.
+         * @return found node or null if this range is empty.
+         */
+        E highest() {
+            E N = toEnd ? lastNode() : floorNode(hi, hiInclusive);
+
+            return N == null || tooLow(N.key) ? null : N;
+        }
+
+        /**
+         * Returns the node with the least key in this range greater than
+         * (or equal to, if inclusive is true) the specified one.
+         * @param key key to be compared with.
+         * @param inclusive true if an equal key is suitable.
+         * @return found node or null if there is no such node.
+         */
+        E ceiling(K key, boolean inclusive) {
+            if (tooLow(key))
+                return lowest();
+
+            E N = ceilingNode(key, inclusive);
+
+            return N == null || tooHigh(N.key) ? null : N;
+        }
+
+        /**
+         * Returns the node with the greatest key in this range less than
+         * (or equal to, if inclusive is true) the specified one.
+         * @param key key to be compared with.
+         * @param inclusive true if an equal key is suitable.
+         * @return found node or null if there is no such node.
+         */
+        E floor(K key, boolean inclusive) {
+            if (tooHigh(key))
+                return highest();
+
+            E N = floorNode(key, inclusive);
+
+            return N == null || tooLow(N.key) ? null : N;
+        }
+
+        /**
+         * Returns the number of nodes in this range.
+         * The nodes below each endpoint are counted by one descent.
+         * @return the number of nodes in this range.
+         */
+        int size() {
+            int count = toEnd ? size : countLess(hi, hiInclusive);
+
+            if (!fromStart)
+                count -= countLess(lo, !loInclusive);
+
+            return Math.max(count, 0);
+        }
+
+        /**
+         * Returns an iterator over the nodes of this range.
+         * @param descending true if the nodes are to be visited in descending order of the keys.
+         * @param element function that produces the returned elements from the nodes.
+         * @param <R> type of the returned elements.
+         * @return iterator over the nodes of this range.
+         */
+        <R> Iterator<R> iterator(boolean descending, Function<E, R> element) {
+            if (descending)
+                return new NodeIterator<>(true, !toEnd, hi, hiInclusive, !fromStart, lo, loInclusive, element);
+            else
+                return new NodeIterator<>(false, !fromStart, lo, loInclusive, !toEnd, hi, hiInclusive, element);
+        }
+    }
+
+    /**
+     * Iterator over the nodes of the treap or of its range.
+     * Keeps the path to the next node on a stack, so each step costs O(1) amortized time.
+     * After a node is removed through the iterator the stack is rebuilt
+     * by a search for the key that follows the removed one.
+     * @param <R> type of the elements produced from the nodes.
+     */
+    final class NodeIterator<R> implements Iterator<R> {
+        /**
+         * True if the nodes are visited in descending order of the keys.
+         */
+        private final boolean descending;
+        /**
+         * True if the iteration has a far endpoint.
+         */
+        private final boolean hasEnd;
+        /**
+         * Far endpoint of the iteration.
+         */
+        private final K end;
+        /**
+         * True if the far endpoint is to be visited.
+         */
+        private final boolean endInclusive;
+        /**
+         * Function that produces the returned elements from the nodes.
+         */
+        private final Function<E, R> element;
+        /**
+         * Stack of the nodes that are still to be visited.
+         * The next node is on the top.
+         */
+        private Object[] stack = new Object[16];
+        /**
+         * Number of the nodes on the stack.
+         */
+        private int depth;
+        /**
+         * Last visited node or null if it was removed or nothing was visited yet.
+         */
+        private E last;
+        /**
+         * The number of modifications of the treap this iterator is aware of.
+         */
+        private int expectedModCount;
+
+        /**
+         * Creates an iterator.
+         * The endpoints are given in the order of the iteration.
+         * @param descending true if the nodes are to be visited in descending order.
+         * @param hasStart true if the iteration has a near endpoint.
+         * @param start near endpoint of the iteration.
+         * @param startInclusive true if the near endpoint is to be visited.
+         * @param hasEnd true if the iteration has a far endpoint.
+         * @param end far endpoint of the iteration.
+         * @param endInclusive true if the far endpoint is to be visited.
+         * @param element function that produces the returned elements from the nodes.
+         */
+        NodeIterator(boolean descending, boolean hasStart, K start, boolean startInclusive,
+                     boolean hasEnd, K end, boolean endInclusive, Function<E, R> element) {
+            this.descending = descending;
+            this.hasEnd = hasEnd;
+            this.end = end;
+            this.endInclusive = endInclusive;
+            this.element = element;
+            this.expectedModCount = modCount;
+
+            seek(hasStart, start, startInclusive);
+        }
+
+        /**
+         * Returns true if the iteration has more elements.
+         * @return true if the iteration has more elements, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            if (depth == 0)
+                return false;
+
+            if (!hasEnd)
+                return true;
+
+            int current = direction(((E) stack[depth - 1]).key, end);
+
+            return current < 0 || current == 0 && endInclusive;
+        }
+
+        /**
+         * Returns the next element in the iteration.
+         * @return the next element in the iteration.
+         * @throws NoSuchElementException if the iteration has no more elements.
+         * @throws ConcurrentModificationException if the treap was modified not through this iterator.
+         */
+        @Override
+        public R next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            E N = (E) stack[--depth];
+            stack[depth] = null;
+
+            pushSpine(descending ? N.L : N.R);
+            last = N;
+
+            return element.apply(N);
+        }
+
+        /**
+         * Removes the last visited node from the treap.
+         * @throws IllegalStateException if there is no node to be removed.
+         * @throws ConcurrentModificationException if the treap was modified not through this iterator.
+         */
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            K key = last.key;
+
+            delete(key);
+            expectedModCount = modCount;
+            last = null;
+
+            Arrays.fill(stack, 0, depth, null);
+            depth = 0;
+            seek(true, key, false);
+        }
+
+        /**
+         * Fills the stack with the path to the first node of the iteration
+         * that is not before the specified endpoint.
+         * @param bounded true if there is an endpoint.
+         * @param start endpoint.
+         * @param inclusive true if the endpoint itself is suitable.
+         */
+        private void seek(boolean bounded, K start, boolean inclusive) {
+            E N = root;
+
+            while (N != null) {
+                int current = bounded ? direction(N.key, start) : 1;
+
+                if (current > 0 || current == 0 && inclusive) {
+                    push(N);
+
+                    if (current == 0)
+                        return;
+
+                    N = descending ? N.R : N.L;
+                } else {
+                    N = descending ? N.L : N.R;
+                }
+            }
+        }
+
+        /**
+         * Pushes the specified node and all the nodes on the spine
+         * towards the beginning of the iteration below it.
+         * @param N node to be pushed or null.
+         */
+        private void pushSpine(E N) {
+            while (N != null) {
+                push(N);
+                N = descending ? N.R : N.L;
+            }
+        }
+
+        /**
+         * Pushes the specified node on the stack.
+         * @param N node to be pushed.
+         */
+        private void push(E N) {
+            if (depth == stack.length)
+                stack = Arrays.copyOf(stack, depth * 2);
+
+            stack[depth++] = N;
+        }
+
+        /**
+         * Compares two keys in the order of the iteration.
+         * @param a first key to be compared.
+         * @param b second key to be compared.
+         * @return a negative number, zero or a positive number as the first key
+         * comes before, together with, or after the second.
+         */
+        private int direction(K a, K b) {
+            return descending ? compare(b, a) : compare(a, b);
+        }
+    }
+
+    /**
+     * A node of the treap.
+     * Actually each node can be considered as a treap.
+     * The collections extend it to store whatever they need besides the key.
+     * @param <K> type of the key.
+     * @param <E> type of the nodes linked to this one.
+     */
+    static class Node<K, E extends Node<K, E>> {
+        /**
+         * First key.
+         */
+        final K key;
+        /**
+         * Second key.
+         */
+        final double y;
+
+        /**
+         * The size of this node.
+         */
+        int size;
+
+        /**
+         * Left child.
+         */
+        E L;
+        /**
+         * Right child.
+         */
+        E R;
+
+        /**
+         * Creates a new node without children.
+         * @param key first key.
+         * @param y second key.
+         */
+        Node(K key, double y) {
+            this.key = key;
+            this.y = y;
+            this.size = 1;
+        }
+
+        /**
+         * Updates the size of the node, considering that both children
+         * store valid size.
+         */
+        void updateSize() {
+            size = sizeOf(L) + sizeOf(R) + 1;
+        }
+    }
+
+    /**
+     * Helper class.
+     * Allows the split to return two treaps at once.
+     * An instance contains two treaps, which are
+     * are referred as left and right.
+     * @param <E> type of the nodes.
+     */
+    static final class PairOfNodes<E> {
+        /**
+         * Left treap.
+         */
+        E L;
+        /**
+         * Right treap.
+         */
+        E R;
+
+        /**
+         * Creates a new pair of treaps.
+         * @param L first treap (will be referred as left).
+         * @param R second treap (will be referred as right).
+         */
+        PairOfNodes(E L, E R) {
+            this.L = L;
+            this.R = R;
+        }
+
+        /**
+         * Replaces both treaps of this pair.
+         * @param L new left treap.
+         * @param R new right treap.
+         */
+        void set(E L, E R) {
+            this.L = L;
+            this.R = R;
+        }
+    }
+}
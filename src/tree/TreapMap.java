@@ -0,0 +1,1294 @@
+package tree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.Function;
+
+/**
+ * <p>This class is an implementation of a map.</p>
+ * <p>The implementation is based on a treap whose nodes store the keys together
+ * with the values, so no holder objects are needed. The nodes are changed in place:
+ * put/remove split and merge only the subtree below the position of the key,
+ * iteratively and without copying any nodes, so putting a new key allocates exactly one node.
+ * Lookups descend from the root and allocate nothing.</p>
+ * <p>An instance of this class can contain any type of keys that could be ordered
+ * via comparator or in a natural order. Keys must not be null, values can be null.</p>
+ * <p>This class implements {@link NavigableMap}. The views returned by
+ * subMap/headMap/tailMap/descendingMap/navigableKeySet are live and their iterators
+ * walk the treap lazily with a stack instead of copying it. The iterators are fail-fast.</p>
+ * <p>The nodes, split/merge and the navigation are shared with {@link Treap}
+ * through {@link TreapEngine}, the nodes of this map also store the values.
+ * Each node keeps the size of its subtree, so the sizes of the range views are found by one descent.</p>
+ * <p>This class offers an almost O(log(n)) time performance
+ * on get/put/remove/containsKey, on the navigation operations and on the size of the views.</p>
+ * <p><strong>Note that this implementation is not synchronized.</strong></p>
+ * @param <K> type of keys to be stored in this map.
+ * @param <V> type of values to be stored in this map.
+ */
+public class TreapMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    /**
+     * The treap that stores the entries of this map in its nodes.
+     */
+    private final TreapEngine<K, Node<K, V>> engine;
+
+    /**
+     * Creates a map without any comparator.
+     */
+    public TreapMap() {
+        this(null);
+    }
+
+    /**
+     * Creates a map with a specified comparator.
+     * @param comparator comparator that will be used to order keys in this map.
+     */
+    public TreapMap(Comparator<? super K> comparator) {
+        engine = new TreapEngine<K, Node<K, V>>(comparator) {
+            @Override
+            TreapMap.Node<K, V> newNode(K key, double y) {
+                return new TreapMap.Node<>(key, y);
+            }
+        };
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped.
+     * @param key key whose value is to be returned.
+     * @return the value to which the key is mapped or null if this map contains no such key.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public V get(Object key) {
+        Node<K, V> N = engine.find((K) key);
+
+        return N == null ? null : N.value;
+    }
+
+    /**
+     * Returns true only if this map contains the specified key.
+     * @param key key whose presence in this map is to be tested.
+     * @return true if this map contains the key, false otherwise.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return engine.find((K) key) != null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * Finds or adds the node of the key by one descent, then replaces its value.
+     * A new node has no value yet, so the previous value of an absent key is null.
+     * @param key key with which the value is to be associated.
+     * @param value value to be associated with the key.
+     * @return the previous value associated with the key or null if there was no such key.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public V put(K key, V value) {
+        Node<K, V> N = engine.insert(key);
+        V result = N.value;
+        N.value = value;
+
+        return result;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map.
+     * The node of the key is replaced by the merge of its children.
+     * @param key key whose mapping is to be removed.
+     * @return the previous value associated with the key or null if there was no such key.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public V remove(Object key) {
+        Node<K, V> N = engine.delete((K) key);
+
+        return N == null ? null : N.value;
+    }
+
+    /**
+     * Returns the number of entries in this map.
+     * @return the number of entries in this map.
+     */
+    @Override
+    public int size() {
+        return engine.size;
+    }
+
+    /**
+     * Returns true if this map contains no entries.
+     * @return true if this map contains no entries, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return engine.size == 0;
+    }
+
+    /**
+     * Removes all of the entries from this map.
+     * This map will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        engine.clear();
+    }
+
+    /**
+     * Returns the comparator used to order the keys in this map.
+     * @return the comparator or null if this map orders the keys in a natural order.
+     */
+    @Override
+    public Comparator<? super K> comparator() {
+        return engine.comparator;
+    }
+
+    /**
+     * Returns the least key in this map.
+     * @return the least key in this map.
+     * @throws NoSuchElementException if this map is empty.
+     */
+    @Override
+    public K firstKey() {
+        return engine.key(engine.firstNode());
+    }
+
+    /**
+     * Returns the greatest key in this map.
+     * @return the greatest key in this map.
+     * @throws NoSuchElementException if this map is empty.
+     */
+    @Override
+    public K lastKey() {
+        return engine.key(engine.lastNode());
+    }
+
+    /**
+     * Returns a snapshot of the entry with the least key in this map.
+     * @return entry with the least key or null if this map is empty.
+     */
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return exportEntry(engine.firstNode());
+    }
+
+    /**
+     * Returns a snapshot of the entry with the greatest key in this map.
+     * @return entry with the greatest key or null if this map is empty.
+     */
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return exportEntry(engine.lastNode());
+    }
+
+    /**
+     * Removes and returns the entry with the least key in this map.
+     * @return entry with the least key or null if this map is empty.
+     */
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return pollNode(engine.firstNode());
+    }
+
+    /**
+     * Removes and returns the entry with the greatest key in this map.
+     * @return entry with the greatest key or null if this map is empty.
+     */
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return pollNode(engine.lastNode());
+    }
+
+    /**
+     * Returns a snapshot of the entry with the greatest key strictly less than the specified one.
+     * @param key key to be compared with.
+     * @return found entry or null if there is no such entry.
+     */
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return exportEntry(engine.floorNode(key, false));
+    }
+
+    /**
+     * Returns the greatest key strictly less than the specified one.
+     * @param key key to be compared with.
+     * @return found key or null if there is no such key.
+     */
+    @Override
+    public K lowerKey(K key) {
+        return engine.keyOrNull(engine.floorNode(key, false));
+    }
+
+    /**
+     * Returns a snapshot of the entry with the greatest key less than or equal to the specified one.
+     * @param key key to be compared with.
+     * @return found entry or null if there is no such entry.
+     */
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return exportEntry(engine.floorNode(key, true));
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the specified one.
+     * @param key key to be compared with.
+     * @return found key or null if there is no such key.
+     */
+    @Override
+    public K floorKey(K key) {
+        return engine.keyOrNull(engine.floorNode(key, true));
+    }
+
+    /**
+     * Returns a snapshot of the entry with the least key greater than or equal to the specified one.
+     * @param key key to be compared with.
+     * @return found entry or null if there is no such entry.
+     */
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return exportEntry(engine.ceilingNode(key, true));
+    }
+
+    /**
+     * Returns the least key greater than or equal to the specified one.
+     * @param key key to be compared with.
+     * @return found key or null if there is no such key.
+     */
+    @Override
+    public K ceilingKey(K key) {
+        return engine.keyOrNull(engine.ceilingNode(key, true));
+    }
+
+    /**
+     * Returns a snapshot of the entry with the least key strictly greater than the specified one.
+     * @param key key to be compared with.
+     * @return found entry or null if there is no such entry.
+     */
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return exportEntry(engine.ceilingNode(key, false));
+    }
+
+    /**
+     * Returns the least key strictly greater than the specified one.
+     * @param key key to be compared with.
+     * @return found key or null if there is no such key.
+     */
+    @Override
+    public K higherKey(K key) {
+        return engine.keyOrNull(engine.ceilingNode(key, false));
+    }
+
+    /**
+     * Returns a set view of the keys contained in this map in ascending order.
+     * @return a set view of the keys.
+     */
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    /**
+     * Returns a navigable set view of the keys contained in this map.
+     * @return a navigable set view of the keys.
+     */
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this);
+    }
+
+    /**
+     * Returns a reverse order navigable set view of the keys contained in this map.
+     * @return a reverse order navigable set view of the keys.
+     */
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a set view of the entries contained in this map in ascending order of the keys.
+     * The entries are the nodes of the treap, so their values can be replaced by setValue.
+     * @return a set view of the entries.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return engine.new NodeIterator<>(false, false, null, false, false, null, false, N -> N);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                Node<K, V> N = engine.find((K) entry.getKey());
+
+                return N != null && Objects.equals(N.value, entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o))
+                    return false;
+
+                engine.delete((K) ((Map.Entry<?, ?>) o).getKey());
+
+                return true;
+            }
+
+            @Override
+            public int size() {
+                return engine.size;
+            }
+
+            @Override
+            public void clear() {
+                TreapMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Returns a reverse order view of the entries contained in this map.
+     * The view is backed by this map.
+     * @return a reverse order view of this map.
+     */
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new SubMap(true, null, false, true, null, false, true);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys range
+     * from the first specified key to the second one.
+     * The view is backed by this map.
+     * @param fromKey low endpoint of the view.
+     * @param fromInclusive true if the low endpoint is to be included in the view.
+     * @param toKey high endpoint of the view.
+     * @param toInclusive true if the high endpoint is to be included in the view.
+     * @return a view of the portion of this map.
+     * @throws IllegalArgumentException if the low endpoint is greater than the high one.
+     */
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (engine.compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("fromKey > toKey");
+
+        return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are less than
+     * (or equal to, if inclusive is true) the specified key.
+     * The view is backed by this map.
+     * @param toKey high endpoint of the view.
+     * @param inclusive true if the high endpoint is to be included in the view.
+     * @return a view of the portion of this map.
+     */
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        engine.compare(toKey, toKey); // type (and possibly null) check
+
+        return new SubMap(true, null, false, false, toKey, inclusive, false);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are greater than
+     * (or equal to, if inclusive is true) the specified key.
+     * The view is backed by this map.
+     * @param fromKey low endpoint of the view.
+     * @param inclusive true if the low endpoint is to be included in the view.
+     * @return a view of the portion of this map.
+     */
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        engine.compare(fromKey, fromKey); // type (and possibly null) check
+
+        return new SubMap(false, fromKey, inclusive, true, null, false, false);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys range
+     * from the first specified key, inclusive, to the second one, exclusive.
+     * @param fromKey low endpoint of the view.
+     * @param toKey high endpoint of the view.
+     * @return a view of the portion of this map.
+     * @throws IllegalArgumentException if the low endpoint is greater than the high one.
+     */
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are less than the specified key.
+     * @param toKey high endpoint of the view.
+     * @return a view of the portion of this map.
+     */
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are greater than
+     * or equal to the specified key.
+     * @param fromKey low endpoint of the view.
+     * @return a view of the portion of this map.
+     */
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Removes the specified node from this map and returns a snapshot of its entry.
+     * @param N node to be removed or null.
+     * @return snapshot of the entry of the node or null if the node is null.
+     */
+    private Map.Entry<K, V> pollNode(Node<K, V> N) {
+        if (N == null)
+            return null;
+
+        Map.Entry<K, V> result = exportEntry(N);
+        engine.delete(N.key);
+
+        return result;
+    }
+
+    /**
+     * Returns an immutable snapshot of the entry stored in the specified node.
+     * @param N node or null.
+     * @return snapshot of the entry or null if the node is null.
+     */
+    private Map.Entry<K, V> exportEntry(Node<K, V> N) {
+        return N == null ? null : new AbstractMap.SimpleImmutableEntry<>(N.key, N.value);
+    }
+
+    /**
+     * A live view of the range of this map in ascending or descending order.
+     * The endpoints are always given in the ascending order of the keys,
+     * each of them is either absent or is given together with its inclusiveness.
+     */
+    private final class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        /**
+         * The range of the treap that is viewed.
+         */
+        private final TreapEngine<K, Node<K, V>>.Range range;
+        /**
+         * True if the view orders the keys in descending order.
+         */
+        private final boolean descending;
+
+        /**
+         * Creates a view of the range of this map.
+         * @param fromStart true if the view has no low endpoint.
+         * @param lo low endpoint of the view.
+         * @param loInclusive true if the low endpoint belongs to the view.
+         * @param toEnd true if the view has no high endpoint.
+         * @param hi high endpoint of the view.
+         * @param hiInclusive true if the high endpoint belongs to the view.
+         * @param descending true if the view orders the keys in descending order.
+         */
+        SubMap(boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd, K hi, boolean hiInclusive, boolean descending) {
+            this.range = engine.new Range(fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+            this.descending = descending;
+        }
+
+        /**
+         * Returns the first node of this view in its order.
+         * @return found node or null if this view is empty.
+         */
+        private Node<K, V> first() {
+            return descending ? range.highest() : range.lowest();
+        }
+
+        /**
+         * Returns the last node of this view in its order.
+         * @return found node or null if this view is empty.
+         */
+        private Node<K, V> last() {
+            return descending ? range.lowest() : range.highest();
+        }
+
+        /**
+         * Returns the first node of this view that comes after
+         * (or together with, if inclusive is true) the specified key in the order of this view.
+         * @param key key to be compared with.
+         * @param inclusive true if an equal key is suitable.
+         * @return found node or null if there is no such node.
+         */
+        private Node<K, V> after(K key, boolean inclusive) {
+            return descending ? range.floor(key, inclusive) : range.ceiling(key, inclusive);
+        }
+
+        /**
+         * Returns the last node of this view that comes before
+         * (or together with, if inclusive is true) the specified key in the order of this view.
+         * @param key key to be compared with.
+         * @param inclusive true if an equal key is suitable.
+         * @return found node or null if there is no such node.
+         */
+        private Node<K, V> before(K key, boolean inclusive) {
+            return descending ? range.ceiling(key, inclusive) : range.floor(key, inclusive);
+        }
+
+        /**
+         * Returns an iterator over the nodes of this view.
+         * @param reverse true if the nodes are to be visited in the reverse order of this view.
+         * @param element function that produces the returned elements from the nodes.
+         * @param <E> type of the returned elements.
+         * @return iterator over the nodes of this view.
+         */
+        private <E> Iterator<E> iterator(boolean reverse, Function<Node<K, V>, E> element) {
+            return range.iterator(descending != reverse, element);
+        }
+
+        /**
+         * Returns the value to which the specified key is mapped.
+         * @param key key whose value is to be returned.
+         * @return the value to which the key is mapped or null if this view contains no such key.
+         */
+        @Override
+        public V get(Object key) {
+            return range.inRange((K) key) ? TreapMap.this.get(key) : null;
+        }
+
+        /**
+         * Returns true only if this view contains the specified key.
+         * @param key key whose presence is to be tested.
+         * @return true if this view contains the key, false otherwise.
+         */
+        @Override
+        public boolean containsKey(Object key) {
+            return range.inRange((K) key) && TreapMap.this.containsKey(key);
+        }
+
+        /**
+         * Associates the specified value with the specified key in the original map.
+         * @param key key with which the value is to be associated.
+         * @param value value to be associated with the key.
+         * @return the previous value associated with the key or null if there was no such key.
+         * @throws IllegalArgumentException if the key is out of the range of this view.
+         */
+        @Override
+        public V put(K key, V value) {
+            if (!range.inRange(key))
+                throw new IllegalArgumentException("key out of range");
+
+            return TreapMap.this.put(key, value);
+        }
+
+        /**
+         * Removes the mapping for the specified key from the original map if it belongs to this view.
+         * @param key key whose mapping is to be removed.
+         * @return the previous value associated with the key or null if there was no such key.
+         */
+        @Override
+        public V remove(Object key) {
+            return range.inRange((K) key) ? TreapMap.this.remove(key) : null;
+        }
+
+        /**
+         * Returns true if this view contains no entries.
+         * @return true if this view contains no entries, false otherwise.
+         */
+        @Override
+        public boolean isEmpty() {
+            return range.lowest() == null;
+        }
+
+        /**
+         * Returns the number of entries in this view.
+         * The entries below each endpoint are counted by one descent.
+         * @return the number of entries in this view.
+         */
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        /**
+         * Returns the comparator used to order the keys in this view.
+         * @return the comparator or null if the keys are ordered in a natural order.
+         */
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(engine.comparator) : engine.comparator;
+        }
+
+        /**
+         * Returns the first key in this view.
+         * @return the first key in this view.
+         * @throws NoSuchElementException if this view is empty.
+         */
+        @Override
+        public K firstKey() {
+            return engine.key(first());
+        }
+
+        /**
+         * Returns the last key in this view.
+         * @return the last key in this view.
+         * @throws NoSuchElementException if this view is empty.
+         */
+        @Override
+        public K lastKey() {
+            return engine.key(last());
+        }
+
+        /**
+         * Returns a snapshot of the first entry in this view.
+         * @return the first entry or null if this view is empty.
+         */
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return exportEntry(first());
+        }
+
+        /**
+         * Returns a snapshot of the last entry in this view.
+         * @return the last entry or null if this view is empty.
+         */
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return exportEntry(last());
+        }
+
+        /**
+         * Removes and returns the first entry in this view.
+         * @return the first entry or null if this view is empty.
+         */
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return pollNode(first());
+        }
+
+        /**
+         * Removes and returns the last entry in this view.
+         * @return the last entry or null if this view is empty.
+         */
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return pollNode(last());
+        }
+
+        /**
+         * Returns a snapshot of the last entry that comes strictly before the specified key.
+         * @param key key to be compared with.
+         * @return found entry or null if there is no such entry.
+         */
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return exportEntry(before(key, false));
+        }
+
+        /**
+         * Returns the last key that comes strictly before the specified one.
+         * @param key key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public K lowerKey(K key) {
+            return engine.keyOrNull(before(key, false));
+        }
+
+        /**
+         * Returns a snapshot of the last entry that comes before or together with the specified key.
+         * @param key key to be compared with.
+         * @return found entry or null if there is no such entry.
+         */
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return exportEntry(before(key, true));
+        }
+
+        /**
+         * Returns the last key that comes before or together with the specified one.
+         * @param key key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public K floorKey(K key) {
+            return engine.keyOrNull(before(key, true));
+        }
+
+        /**
+         * Returns a snapshot of the first entry that comes after or together with the specified key.
+         * @param key key to be compared with.
+         * @return found entry or null if there is no such entry.
+         */
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(after(key, true));
+        }
+
+        /**
+         * Returns the first key that comes after or together with the specified one.
+         * @param key key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public K ceilingKey(K key) {
+            return engine.keyOrNull(after(key, true));
+        }
+
+        /**
+         * Returns a snapshot of the first entry that comes strictly after the specified key.
+         * @param key key to be compared with.
+         * @return found entry or null if there is no such entry.
+         */
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return exportEntry(after(key, false));
+        }
+
+        /**
+         * Returns the first key that comes strictly after the specified one.
+         * @param key key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public K higherKey(K key) {
+            return engine.keyOrNull(after(key, false));
+        }
+
+        /**
+         * Returns a set view of the keys contained in this view.
+         * @return a set view of the keys.
+         */
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        /**
+         * Returns a navigable set view of the keys contained in this view.
+         * @return a navigable set view of the keys.
+         */
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        /**
+         * Returns a reverse order navigable set view of the keys contained in this view.
+         * @return a reverse order navigable set view of the keys.
+         */
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        /**
+         * Returns a set view of the entries contained in this view.
+         * @return a set view of the entries.
+         */
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return SubMap.this.iterator(false, N -> N);
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return SubMap.this.isEmpty();
+                }
+            };
+        }
+
+        /**
+         * Returns a reverse order view of this view.
+         * @return a reverse order view of this view.
+         */
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(range.fromStart, range.lo, range.loInclusive, range.toEnd, range.hi, range.hiInclusive, !descending);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys range
+         * from the first specified key to the second one in the order of this view.
+         * @param fromKey first endpoint of the view.
+         * @param fromInclusive true if the first endpoint is to be included in the view.
+         * @param toKey last endpoint of the view.
+         * @param toInclusive true if the last endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         * @throws IllegalArgumentException if an endpoint is out of the range of this view
+         * or the first endpoint comes after the last one.
+         */
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (!range.inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+
+            if (!range.inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+
+            if (descending) {
+                if (engine.compare(toKey, fromKey) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+
+                return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+            }
+
+            if (engine.compare(fromKey, toKey) > 0)
+                throw new IllegalArgumentException("fromKey > toKey");
+
+            return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys come before
+         * (or together with, if inclusive is true) the specified key in the order of this view.
+         * @param toKey last endpoint of the view.
+         * @param inclusive true if the last endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         * @throws IllegalArgumentException if the endpoint is out of the range of this view.
+         */
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            if (!range.inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+
+            if (descending)
+                return new SubMap(false, toKey, inclusive, range.toEnd, range.hi, range.hiInclusive, true);
+            else
+                return new SubMap(range.fromStart, range.lo, range.loInclusive, false, toKey, inclusive, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys come after
+         * (or together with, if inclusive is true) the specified key in the order of this view.
+         * @param fromKey first endpoint of the view.
+         * @param inclusive true if the first endpoint is to be included in the view.
+         * @return a view of the portion of this view.
+         * @throws IllegalArgumentException if the endpoint is out of the range of this view.
+         */
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            if (!range.inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+
+            if (descending)
+                return new SubMap(range.fromStart, range.lo, range.loInclusive, false, fromKey, inclusive, true);
+            else
+                return new SubMap(false, fromKey, inclusive, range.toEnd, range.hi, range.hiInclusive, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys range
+         * from the first specified key, inclusive, to the second one, exclusive.
+         * @param fromKey first endpoint of the view.
+         * @param toKey last endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys come before the specified key.
+         * @param toKey last endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        /**
+         * Returns a view of the portion of this view whose keys come after
+         * or together with the specified key.
+         * @param fromKey first endpoint of the view.
+         * @return a view of the portion of this view.
+         */
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * A live navigable set view of the keys of a navigable map.
+     * Each operation is delegated to the corresponding operation of the map.
+     * @param <E> type of the keys.
+     */
+    private static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        /**
+         * The map whose keys are viewed.
+         */
+        private final NavigableMap<E, ?> map;
+
+        /**
+         * Creates a view of the keys of the specified map.
+         * @param map the map whose keys are viewed.
+         */
+        KeySet(NavigableMap<E, ?> map) {
+            this.map = map;
+        }
+
+        /**
+         * Returns an iterator over the keys in the order of the map.
+         * @return iterator over the keys.
+         */
+        @Override
+        public Iterator<E> iterator() {
+            Iterator<? extends Map.Entry<E, ?>> entries = map.entrySet().iterator();
+
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        /**
+         * Returns an iterator over the keys in the reverse order of the map.
+         * @return iterator over the keys in reverse order.
+         */
+        @Override
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        /**
+         * Returns the number of keys.
+         * @return the number of keys.
+         */
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        /**
+         * Returns true if there are no keys.
+         * @return true if there are no keys, false otherwise.
+         */
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        /**
+         * Returns true only if the map contains the specified key.
+         * @param o key whose presence is to be tested.
+         * @return true if the map contains the key, false otherwise.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        /**
+         * Removes the mapping for the specified key from the map.
+         * @param o key whose mapping is to be removed.
+         * @return true if the map did contain the key, false otherwise.
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!map.containsKey(o))
+                return false;
+
+            map.remove(o);
+
+            return true;
+        }
+
+        /**
+         * Removes all the mappings from the map.
+         */
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        /**
+         * Returns the comparator used to order the keys.
+         * @return the comparator or null if the keys are ordered in a natural order.
+         */
+        @Override
+        public Comparator<? super E> comparator() {
+            return map.comparator();
+        }
+
+        /**
+         * Returns the first key.
+         * @return the first key.
+         * @throws NoSuchElementException if there are no keys.
+         */
+        @Override
+        public E first() {
+            return map.firstKey();
+        }
+
+        /**
+         * Returns the last key.
+         * @return the last key.
+         * @throws NoSuchElementException if there are no keys.
+         */
+        @Override
+        public E last() {
+            return map.lastKey();
+        }
+
+        /**
+         * Returns the last key strictly before the specified one.
+         * @param e key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public E lower(E e) {
+            return map.lowerKey(e);
+        }
+
+        /**
+         * Returns the last key before or equal to the specified one.
+         * @param e key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public E floor(E e) {
+            return map.floorKey(e);
+        }
+
+        /**
+         * Returns the first key after or equal to the specified one.
+         * @param e key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public E ceiling(E e) {
+            return map.ceilingKey(e);
+        }
+
+        /**
+         * Returns the first key strictly after the specified one.
+         * @param e key to be compared with.
+         * @return found key or null if there is no such key.
+         */
+        @Override
+        public E higher(E e) {
+            return map.higherKey(e);
+        }
+
+        /**
+         * Removes and returns the first key.
+         * @return the first key or null if there are no keys.
+         */
+        @Override
+        public E pollFirst() {
+            Map.Entry<E, ?> entry = map.pollFirstEntry();
+
+            return entry == null ? null : entry.getKey();
+        }
+
+        /**
+         * Removes and returns the last key.
+         * @return the last key or null if there are no keys.
+         */
+        @Override
+        public E pollLast() {
+            Map.Entry<E, ?> entry = map.pollLastEntry();
+
+            return entry == null ? null : entry.getKey();
+        }
+
+        /**
+         * Returns a view of the keys ranging from the first specified key to the second one.
+         * @param fromElement first endpoint of the view.
+         * @param fromInclusive true if the first endpoint is to be included in the view.
+         * @param toElement last endpoint of the view.
+         * @param toInclusive true if the last endpoint is to be included in the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        /**
+         * Returns a view of the keys that come before
+         * (or together with, if inclusive is true) the specified key.
+         * @param toElement last endpoint of the view.
+         * @param inclusive true if the last endpoint is to be included in the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(map.headMap(toElement, inclusive));
+        }
+
+        /**
+         * Returns a view of the keys that come after
+         * (or together with, if inclusive is true) the specified key.
+         * @param fromElement first endpoint of the view.
+         * @param inclusive true if the first endpoint is to be included in the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(map.tailMap(fromElement, inclusive));
+        }
+
+        /**
+         * Returns a view of the keys ranging from the first specified key, inclusive,
+         * to the second one, exclusive.
+         * @param fromElement first endpoint of the view.
+         * @param toElement last endpoint of the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        /**
+         * Returns a view of the keys that come before the specified key.
+         * @param toElement last endpoint of the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        /**
+         * Returns a view of the keys that come after or together with the specified key.
+         * @param fromElement first endpoint of the view.
+         * @return a view of the portion of the keys.
+         */
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        /**
+         * Returns a reverse order view of the keys.
+         * @return a reverse order view of the keys.
+         */
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(map.descendingMap());
+        }
+    }
+
+    /**
+     * A node of this treap that stores an entry of this map.
+     * The key of the entry is the first key of the node.
+     */
+    private static final class Node<K, V> extends TreapEngine.Node<K, Node<K, V>> implements Map.Entry<K, V> {
+        /**
+         * Value of the entry.
+         */
+        V value;
+
+        /**
+         * Creates a new node with the specified key and priority and without a value.
+         * @param key key of the entry and the first key of the treap.
+         * @param y second key.
+         */
+        Node(K key, double y) {
+            super(key, y);
+        }
+
+        /**
+         * Returns the key of the entry.
+         * @return key of the entry.
+         */
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value of the entry.
+         * @return value of the entry.
+         */
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Replaces the value of the entry.
+         * @param value new value of the entry.
+         * @return old value of the entry.
+         */
+        @Override
+        public V setValue(V value) {
+            V result = this.value;
+            this.value = value;
+
+            return result;
+        }
+
+        /**
+         * Compares the specified object with this entry for equality.
+         * @param o object to be compared.
+         * @return true if the object is an entry with equal key and value.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        /**
+         * Returns the hash code of this entry.
+         * @return the hash code of this entry.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        /**
+         * Returns a string representation of this entry.
+         * @return string representation of this entry.
+         */
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package tree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -99,22 +101,26 @@ final class Trees {
 
     /**
      * Puts all elements from the tree into one list.
-     * @param N the node currently viewed.
+     * The tree is walked with an explicit stack, so even a degenerate tree
+     * does not overflow the call stack.
+     * @param root root of the tree given.
      * @param ar the list into which elements are placed.
      * @param <T> type of elements stored in the tree given.
      */
-    private static <T> void walkInOrder(Node N, List<T> ar) {
-        if (N == null)
-            return;
-
-        if (N.getL() != null)
-            walkInOrder(N.getL(), ar);
-
-        ar.add((T) N.getValue());
-
-        if (N.getR() != null)
-            walkInOrder(N.getR(), ar);
+    private static <T> void walkInOrder(Node root, List<T> ar) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Node N = root;
+
+        while (N != null || !stack.isEmpty()) {
+            while (N != null) {
+                stack.push(N);
+                N = N.getL();
+            }
 
+            N = stack.pop();
+            ar.add((T) N.getValue());
+            N = N.getR();
+        }
     }
 
     /**
@@ -141,4 +147,84 @@ final class Trees {
          */
         abstract Node getR();
     }
+
+    /**
+     * Token that tells which structure owns a group of nodes.
+     * Each node refers to the token of the structure that created it.
+     * When all the nodes of one structure are moved into another one,
+     * the token of the first structure is forwarded to the token of the second one,
+     * so the owner of any node is found without visiting the moved nodes.
+     * When all the nodes of a structure are dropped, its token is released
+     * and no longer has an owner.
+     */
+    static final class Owner {
+        /**
+         * The structure that owns the nodes
+         * or null if this token was released or forwarded.
+         */
+        private Object structure;
+        /**
+         * The token this one was forwarded to or null.
+         */
+        private Owner next;
+
+        /**
+         * Creates a new token.
+         * @param structure the structure that owns the nodes.
+         */
+        Owner(Object structure) {
+            this.structure = structure;
+        }
+
+        /**
+         * Returns the token at the end of the forwarding chain of this one.
+         * Halves the chain on the way, so the chains stay short.
+         * @return the token that is not forwarded.
+         */
+        Owner current() {
+            Owner O = this;
+
+            while (O.next != null) {
+                if (O.next.next != null)
+                    O.next = O.next.next;
+
+                O = O.next;
+            }
+
+            return O;
+        }
+
+        /**
+         * Returns true only if the specified structure owns the nodes of this token.
+         * @param structure the structure to be checked.
+         * @return true if the structure owns the nodes, false otherwise.
+         */
+        boolean isOwnedBy(Object structure) {
+            return structure != null && current().structure == structure;
+        }
+
+        /**
+         * Returns true only if the nodes of this token are still owned by some structure.
+         * @return true if the nodes are owned, false otherwise.
+         */
+        boolean isOwned() {
+            return current().structure != null;
+        }
+
+        /**
+         * Hands the nodes of this token over to the owner of another token.
+         * @param another the token the nodes are handed over to.
+         */
+        void forwardTo(Owner another) {
+            structure = null;
+            next = another;
+        }
+
+        /**
+         * Drops the nodes of this token, so they are no longer owned by any structure.
+         */
+        void release() {
+            structure = null;
+        }
+    }
 }